@@ -19,4 +19,15 @@ public class EqualsFunction<T> implements SerializableBiFunction<T, T, Boolean>
     public EqualsFunction<T> clone() {
         return new EqualsFunction<T>();
     }
+
+    /** All equals functions are equal, since they behave identically. */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EqualsFunction;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
 }
@@ -0,0 +1,269 @@
+package de.tudortmund.cs.iltis.utils.collections;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A sorted map whose copies share their storage.
+ *
+ * <p>The entries are stored in an AVL tree of immutable nodes, ordered by the natural ordering of
+ * the keys (like a {@link TreeMap}). Modifying operations do not change any node but create new
+ * nodes on the path from the root to the modified entry (path copying), so they need O(log n) time
+ * and space. Hence, {@link #fork()} can create an independent copy of a map in constant time: both
+ * maps share all nodes, and subsequent modifications of either map do not affect the other one.
+ *
+ * <p>Null keys are not supported.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class PersistentSortedMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V>
+        implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Node<K, V> root;
+    private int size;
+
+    /** Creates a new empty map. */
+    public PersistentSortedMap() {}
+
+    /**
+     * Creates a new map containing the entries of the given map.
+     *
+     * @param map the map to copy
+     */
+    public PersistentSortedMap(Map<? extends K, ? extends V> map) {
+        putAll(map);
+    }
+
+    private PersistentSortedMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns a copy of this map in constant time.
+     *
+     * <p>The copy shares its storage with this map; modifying one of the maps does not affect the
+     * other one.
+     *
+     * @return the copy
+     */
+    public PersistentSortedMap<K, V> fork() {
+        return new PersistentSortedMap<>(root, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = findNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        Node<K, V> node = findNode(key);
+        if (node != null && node.value == value) return value;
+        root = insert(root, key, value);
+        if (node == null) size++;
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = findNode(key);
+        if (node == null) return null;
+        root = delete(root, node.key);
+        size--;
+        return node.value;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<K, V> findNode(Object key) {
+        if (key == null) return null;
+        K k = (K) key;
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = k.compareTo(node.key);
+            if (comparison == 0) return node;
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // AVL TREE
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> insert(
+            Node<K, V> node, K key, V value) {
+        if (node == null) return new Node<>(key, value, null, null);
+        int comparison = key.compareTo(node.key);
+        if (comparison == 0) return new Node<>(key, value, node.left, node.right);
+        if (comparison < 0)
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+        int comparison = key.compareTo(node.key);
+        if (comparison < 0)
+            return balance(node.key, node.value, delete(node.left, key), node.right);
+        if (comparison > 0)
+            return balance(node.key, node.value, node.left, delete(node.right, key));
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node<K, V> successor = node.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(
+                successor.key, successor.value, node.left, delete(node.right, successor.key));
+    }
+
+    private static <K, V> int height(Node<K, V> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right))
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            return rotateRight(key, value, left, right);
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left))
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(
+            K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(
+                left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(
+                right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static class Node<K, V> implements Entry<K, V>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private K key;
+        private V value;
+        private Node<K, V> left;
+        private Node<K, V> right;
+        private int height;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) return false;
+            Entry<?, ?> other = (Entry<?, ?>) obj;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+
+        /** for GWT serialization */
+        @SuppressWarnings("unused")
+        private Node() {}
+    }
+
+    /** Iterates the entries in ascending order of their keys, using an explicit stack. */
+    private static class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+        private EntryIterator(Node<K, V> root) {
+            pushLeftPath(root);
+        }
+
+        private void pushLeftPath(Node<K, V> node) {
+            for (; node != null; node = node.left) stack.push(node);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (stack.isEmpty()) throw new NoSuchElementException();
+            Node<K, V> node = stack.pop();
+            pushLeftPath(node.right);
+            return node;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package de.tudortmund.cs.iltis.utils.collections;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,6 +15,12 @@ import java.util.List;
  * <p>A empty list is split in a partition with the required number of empty sublists. Splitting in
  * a 0-partition will only return the empty partition (i.e. the empty list).
  *
+ * <p>Optionally, the sizes of the sublists can be bounded. Then only the partitions respecting
+ * these bounds are generated, without enumerating the others. In this case, the sublists are
+ * read-only views of a copy of the given list, so creating a partition does not copy any elements.
+ * Since these views are neither serializable nor GWT-serializable, sublists to be kept, e.g. in
+ * matches, have to be copied. Without bounds, each sublist is a new {@link ArrayList}.
+ *
  * @param <T> the type for elements in the list to partition
  */
 public class SequencePartitionIterator<T> extends PreCalcIterator<List<List<T>>> {
@@ -25,68 +33,117 @@ public class SequencePartitionIterator<T> extends PreCalcIterator<List<List<T>>>
      * @param noPartitions the number of sublists to have a in a partition
      */
     public SequencePartitionIterator(List<T> list, final int noPartitions) {
-        if (noPartitions < 0) throw new IllegalArgumentException();
+        this(list, new int[checkNoPartitions(noPartitions)], unbounded(noPartitions), false);
+    }
+
+    /**
+     * Creates a new {@link SequencePartitionIterator} with the given list, which only generates the
+     * partitions whose i-th sublist has at least {@code minSizes[i]} and at most {@code
+     * maxSizes[i]} elements. The number of sublists is given by the length of the arrays. The
+     * sublists are read-only views.
+     *
+     * @param list the list to create the partition from, is cloned
+     * @param minSizes the minimal sizes of the sublists
+     * @param maxSizes the maximal sizes of the sublists, {@link Integer#MAX_VALUE} if unbounded
+     */
+    public SequencePartitionIterator(List<T> list, final int[] minSizes, final int[] maxSizes) {
+        this(list, minSizes, maxSizes, true);
+    }
+
+    private SequencePartitionIterator(
+            List<T> list, final int[] minSizes, final int[] maxSizes, final boolean views) {
+        if (minSizes.length != maxSizes.length) throw new IllegalArgumentException();
+        for (int minSize : minSizes) if (minSize < 0) throw new IllegalArgumentException();
         this.list = new ArrayList<>(list);
-        this.noPartitions = noPartitions;
+        this.noPartitions = minSizes.length;
+        this.minSizes = minSizes.clone();
+        this.maxSizes = maxSizes.clone();
+        this.views = views;
+    }
+
+    private static int checkNoPartitions(final int noPartitions) {
+        if (noPartitions < 0) throw new IllegalArgumentException();
+        return noPartitions;
+    }
+
+    private static int[] unbounded(final int noPartitions) {
+        int[] maxSizes = new int[noPartitions];
+        Arrays.fill(maxSizes, Integer.MAX_VALUE);
+        return maxSizes;
     }
 
     @Override
     protected boolean init() {
-        sublist = new ArrayList<>();
-        if (noPartitions >= 1) sublist.addAll(list);
-        if (noPartitions > 1)
-            restIt = new SequencePartitionIterator<>(new ArrayList<>(), noPartitions - 1);
-        else restIt = null;
+        // minRest[i] and maxRest[i] bound the number of elements the sublists i, i+1, ... can take
+        minRest = new int[noPartitions + 1];
+        maxRest = new int[noPartitions + 1];
+        for (int i = noPartitions - 1; i >= 0; i--) {
+            if (minSizes[i] > maxSizes[i]) return false;
+            minRest[i] = saturatedAdd(minSizes[i], minRest[i + 1]);
+            maxRest[i] = saturatedAdd(maxSizes[i], maxRest[i + 1]);
+        }
+        bounds = new int[noPartitions + 1];
         return true;
     }
 
     @Override
     protected List<List<T>> calculateFirst() {
-        List<List<T>> newRightPartition;
-
-        // equivalent to noPartitions == 0 on first call
-        if (restIt == null) newRightPartition = new ArrayList<>();
-        else
-            // every SequencePartitionIterator has at least one element
-            newRightPartition = restIt.next();
-
-        List<List<T>> newPartition = new ArrayList<>();
         // if zero sublists: return empty list
-        if (noPartitions >= 1)
-            // new list to keep sublist internal
-            newPartition.add(new ArrayList<>(sublist));
-        newPartition.addAll(newRightPartition);
-        return newPartition;
+        if (noPartitions == 0) return new ArrayList<>();
+        if (list.size() < minRest[0] || list.size() > maxRest[0]) return null;
+        fillFrom(0);
+        return createPartition();
     }
 
     @Override
     protected List<List<T>> calculateNext() {
-        List<List<T>> newRightPartition;
-
-        if (restIt != null && restIt.hasNext()) {
-            newRightPartition = restIt.next();
-        } else if (restIt != null && !sublist.isEmpty()) {
-            final int lastIndex = this.sublist.size() - 1;
-            sublist.remove(lastIndex);
-            List<T> remaining = list.subList(lastIndex, list.size());
-            restIt = new SequencePartitionIterator<>(remaining, noPartitions - 1);
-            // every SequencePartitionIterator has at least one element
-            newRightPartition = restIt.next();
-        } else {
-            return null;
+        // shrink the rightmost sublist (except the last one) that can pass an element to the
+        // remaining sublists, which then take as many elements as possible from left to right
+        for (int i = noPartitions - 2; i >= 0; i--) {
+            int end = bounds[i + 1] - 1;
+            if (end - bounds[i] >= minSizes[i] && list.size() - end <= maxRest[i + 1]) {
+                bounds[i + 1] = end;
+                fillFrom(i + 1);
+                return createPartition();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lets the i-th and all following sublists take as many elements as possible, such that the
+     * remaining sublists can still take the remaining elements.
+     */
+    private void fillFrom(int i) {
+        for (int j = i; j < noPartitions; j++) {
+            int remaining = list.size() - bounds[j];
+            bounds[j + 1] = bounds[j] + Math.min(maxSizes[j], remaining - minRest[j + 1]);
         }
+    }
 
-        List<List<T>> newPartition = new ArrayList<>();
-        // new list to keep sublist internal
-        newPartition.add(new ArrayList<>(sublist));
-        newPartition.addAll(newRightPartition);
-        return newPartition;
+    private List<List<T>> createPartition() {
+        List<List<T>> partition = new ArrayList<>(noPartitions);
+        for (int i = 0; i < noPartitions; i++) {
+            List<T> sublist = list.subList(bounds[i], bounds[i + 1]);
+            partition.add(views ? Collections.unmodifiableList(sublist) : new ArrayList<>(sublist));
+        }
+        return partition;
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        return a > Integer.MAX_VALUE - b ? Integer.MAX_VALUE : a + b;
     }
 
     private final List<T> list;
-    private List<T> sublist;
     private final int noPartitions;
-    private SequencePartitionIterator<T> restIt;
+    private final int[] minSizes;
+    private final int[] maxSizes;
+    private final boolean views;
+    private int[] minRest;
+    private int[] maxRest;
+
+    /** The sublist i ranges from bounds[i] (inclusive) to bounds[i+1] (exclusive). */
+    private int[] bounds;
 
     /** for GWT serializability */
     @SuppressWarnings("unused")
@@ -94,5 +151,8 @@ public class SequencePartitionIterator<T> extends PreCalcIterator<List<List<T>>>
         super();
         noPartitions = 0;
         list = null;
+        minSizes = null;
+        maxSizes = null;
+        views = false;
     }
 }
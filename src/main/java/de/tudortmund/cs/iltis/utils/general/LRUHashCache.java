@@ -1,42 +1,36 @@
 package de.tudortmund.cs.iltis.utils.general;
 
-import java.util.ArrayDeque;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Optional;
 
 public class LRUHashCache<I, O> extends AbstractCache<I, O> {
-    private ArrayDeque<I> inputs;
-    private HashMap<I, O> values;
+    // in access order, i.e. the least recently used input comes first
+    private LinkedHashMap<I, O> values;
 
     public LRUHashCache(int capacity) {
         super(capacity);
-        this.inputs = new ArrayDeque<>();
-        this.values = new HashMap<>();
+        this.values = new LinkedHashMap<>(16, 0.75f, true);
     }
 
     public void free() {
-        I lruInput = this.inputs.getLast();
-        values.remove(lruInput);
-        inputs.removeLast();
+        Iterator<I> inputs = this.values.keySet().iterator();
+        inputs.next();
+        inputs.remove();
     }
 
     public Optional<O> get(I input) {
-        if (this.values.containsKey(input)) {
-            this.inputs.remove(input);
-            this.inputs.addFirst(input);
-            return Optional.of(this.values.get(input));
-        }
+        if (this.values.containsKey(input)) return Optional.of(this.values.get(input));
         return Optional.empty();
     }
 
     public int getSize() {
-        return inputs.size();
+        return values.size();
     }
 
     public void put(I input, O output) {
-        this.inputs.remove(input);
+        this.values.remove(input);
         super.put(input, output);
-        this.inputs.addFirst(input);
         this.values.put(input, output);
     }
 }
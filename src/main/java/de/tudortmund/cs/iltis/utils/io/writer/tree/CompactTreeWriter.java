@@ -0,0 +1,60 @@
+package de.tudortmund.cs.iltis.utils.io.writer.tree;
+
+import de.tudortmund.cs.iltis.utils.io.writer.general.DefaultWriter;
+import de.tudortmund.cs.iltis.utils.io.writer.general.Writer;
+import de.tudortmund.cs.iltis.utils.tree.CompactTree;
+
+/**
+ * A default writer for compact trees, which writes every node like a term: its label followed by
+ * its children in parentheses, if there are any.
+ *
+ * @param <L> Type of labels.
+ */
+public class CompactTreeWriter<L> implements Writer<CompactTree<L>> {
+
+    /** Writer used for the labels. */
+    private Writer<? super L> labelWriter;
+
+    /** Separator used to separate arguments. */
+    private String separator;
+
+    /** String used in front of first argument. */
+    private String front;
+
+    /** String used behind last argument. */
+    private String back;
+
+    public CompactTreeWriter() {
+        this(new DefaultWriter<>());
+    }
+
+    public CompactTreeWriter(Writer<? super L> labelWriter) {
+        this(labelWriter, "(", ")", ",");
+    }
+
+    public CompactTreeWriter(
+            Writer<? super L> labelWriter, String front, String back, String separator) {
+        this.labelWriter = labelWriter;
+        this.front = front;
+        this.back = back;
+        this.separator = separator;
+    }
+
+    @Override
+    public String write(CompactTree<L> tree) {
+        return tree.fold(
+                this::writeLabel,
+                (label, childrenOutput) -> {
+                    StringBuilder text = new StringBuilder();
+                    text.append(writeLabel(label));
+                    text.append(front);
+                    text.append(String.join(separator, childrenOutput));
+                    text.append(back);
+                    return text.toString();
+                });
+    }
+
+    private String writeLabel(L label) {
+        return label == null ? "" : labelWriter.write(label);
+    }
+}
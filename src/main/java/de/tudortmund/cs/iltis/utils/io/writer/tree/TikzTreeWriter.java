@@ -26,7 +26,7 @@ public class TikzTreeWriter<T extends Tree<T>> implements Writer<T> {
                 .append(" ")
                 .append(writeNode(tree))
                 .append("\n");
-        for (T child : tree.getChildren()) builder.append(this.write(child, "\t"));
+        for (T child : tree.childrenView()) builder.append(this.write(child, "\t"));
         builder.append(";\n");
         return builder.toString();
     }
@@ -40,7 +40,7 @@ public class TikzTreeWriter<T extends Tree<T>> implements Writer<T> {
                 .append(" ")
                 .append(writeNode(tree))
                 .append("\n");
-        for (T child : tree.getChildren()) builder.append(this.write(child, indent + "\t"));
+        for (T child : tree.childrenView()) builder.append(this.write(child, indent + "\t"));
         builder.append(indent).append("}\n");
         return builder.toString();
     }
@@ -3,8 +3,6 @@ package de.tudortmund.cs.iltis.utils.term;
 import de.tudortmund.cs.iltis.utils.io.writer.term.TermWriter;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -142,12 +140,9 @@ public class Term<SubtermT extends Term<SubtermT, ? extends NameT>, NameT extend
      *
      * <p><b>Important note:</b> the name of this term is <b>not</b> cloned.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public Term<SubtermT, NameT> clone() {
-        List<SubtermT> clonedChildren = new ArrayList<>();
-        children.forEach(child -> clonedChildren.add((SubtermT) child.clone()));
-        return new Term<>(arityFixed, name, clonedChildren);
+        return new Term<>(arityFixed, name, getClonedChildren());
     }
 
     @Override
@@ -166,6 +161,15 @@ public class Term<SubtermT extends Term<SubtermT, ? extends NameT>, NameT extend
         return result;
     }
 
+    @Override
+    protected int nodeHashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (arityFixed ? 1231 : 1237);
+        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        return result;
+    }
+
     @Override
     public String toString() {
         TermWriter<SubtermT, NameT> writer = new TermWriter<>();
@@ -65,6 +65,13 @@ public class ExactNamePattern<
         this.nameToMatch = nameToMatch;
     }
 
+    /**
+     * @return the name a term needs to have to be matched by this pattern
+     */
+    public NameT getNameToMatch() {
+        return nameToMatch;
+    }
+
     @Override
     public NameT createName(Match<MatchedT> match) {
         return this.nameToMatch;
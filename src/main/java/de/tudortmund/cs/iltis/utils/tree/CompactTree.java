@@ -0,0 +1,349 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A compact, read-only representation of a labelled tree by a struct of arrays.
+ *
+ * <p>Instead of one object with a list of children per node, the structure of the tree is stored in
+ * three integer arrays holding the parent, the first child and the next sibling of every node, and
+ * the labels of all nodes are stored in one label column. Nodes are identified by integers: they
+ * are numbered in preorder, so the root is 0 and iterating from 0 to {@code size() - 1} visits all
+ * nodes in preorder. Missing parents, children or siblings are denoted by {@link #NONE}.
+ *
+ * <p>Compact trees are created from {@link Tree}s by {@link #of(Tree, Function)}, which extracts
+ * the label of every node, and converted back by {@link #toTree(BiFunction)}. Traversals, folds and
+ * label queries, e.g. to prefilter candidates for pattern matching, run directly on the arrays
+ * without creating node objects.
+ *
+ * @param <L> The type of labels
+ */
+public class CompactTree<L> implements Serializable {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // STATIC ATTRIBUTES AND METHODS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** For serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** Denotes a missing parent, child or sibling. */
+    public static final int NONE = -1;
+
+    /**
+     * Creates the compact representation of the specified tree.
+     *
+     * @param tree The tree to represent.
+     * @param labelling The function extracting the label of a node.
+     * @return The compact tree.
+     */
+    public static <T extends Tree<T>, L> CompactTree<L> of(
+            T tree, Function<? super T, ? extends L> labelling) {
+        int size = 0;
+        for (Iterator<T> it = tree.preorderDescendantIterator(); it.hasNext(); it.next()) size++;
+        CompactTree<L> compactTree = new CompactTree<>(size);
+
+        // Depth-first search with an explicit stack; the children of a node are pushed in reverse
+        // order, so the nodes are popped in preorder.
+        int[] lastChildren = new int[size];
+        List<T> stack = new ArrayList<>();
+        int[] stackParents = new int[16];
+        stack.add(tree);
+        stackParents[0] = NONE;
+        for (int id = 0; id < size; id++) {
+            int top = stack.size() - 1;
+            T node = stack.remove(top);
+            int parent = stackParents[top];
+
+            compactTree.labels[id] = labelling.apply(node);
+            compactTree.parent[id] = parent;
+            compactTree.firstChild[id] = NONE;
+            compactTree.nextSibling[id] = NONE;
+            lastChildren[id] = NONE;
+            if (parent != NONE) {
+                if (lastChildren[parent] == NONE) compactTree.firstChild[parent] = id;
+                else compactTree.nextSibling[lastChildren[parent]] = id;
+                lastChildren[parent] = id;
+            }
+
+            for (int i = node.getNumberOfChildren() - 1; i >= 0; i--) {
+                if (stack.size() == stackParents.length)
+                    stackParents = Arrays.copyOf(stackParents, 2 * stackParents.length);
+                stackParents[stack.size()] = id;
+                stack.add(node.getChild(i));
+            }
+        }
+        return compactTree;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ATTRIBUTES
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** The parent of every node. */
+    private int[] parent;
+
+    /** The first child of every node. */
+    private int[] firstChild;
+
+    /** The next sibling of every node. */
+    private int[] nextSibling;
+
+    /** The label of every node. */
+    private Object[] labels;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTORS
+    ///////////////////////////////////////////////////////////////////////////
+
+    private CompactTree(int size) {
+        this.parent = new int[size];
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.labels = new Object[size];
+    }
+
+    /** For GWT serialization */
+    @SuppressWarnings("unused")
+    private CompactTree() {}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // METHODS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** Returns the number of nodes. */
+    public int size() {
+        return labels.length;
+    }
+
+    /** Returns the root, which is always 0. */
+    public int getRoot() {
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public L getLabel(int node) {
+        return (L) labels[node];
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return firstChild[node] == NONE;
+    }
+
+    public int getNumberOfChildren(int node) {
+        int number = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) number++;
+        return number;
+    }
+
+    /**
+     * Returns the first node behind the subtree of the specified node in preorder, i.e. the nodes
+     * of the subtree are exactly the ones from node to the returned one (exclusive).
+     *
+     * @param node The root of the subtree.
+     * @return The first node behind the subtree or {@link #size()} if there is none.
+     */
+    public int getSubtreeEnd(int node) {
+        for (int ancestor = node; ancestor != NONE; ancestor = parent[ancestor])
+            if (nextSibling[ancestor] != NONE) return nextSibling[ancestor];
+        return size();
+    }
+
+    // Label queries
+
+    /** Checks whether any node has the specified label. */
+    public boolean containsLabel(L label) {
+        for (Object nodeLabel : labels) if (Objects.equals(nodeLabel, label)) return true;
+        return false;
+    }
+
+    /**
+     * Returns all nodes whose label satisfies the specified predicate in preorder.
+     *
+     * @param predicate The predicate to test the labels with.
+     * @return A new array of nodes.
+     */
+    @SuppressWarnings("unchecked")
+    public int[] getNodes(Predicate<? super L> predicate) {
+        int[] nodes = new int[16];
+        int number = 0;
+        for (int node = 0; node < labels.length; node++) {
+            if (predicate.test((L) labels[node])) {
+                if (number == nodes.length) nodes = Arrays.copyOf(nodes, 2 * number);
+                nodes[number++] = node;
+            }
+        }
+        return Arrays.copyOf(nodes, number);
+    }
+
+    /** Returns all nodes with the specified label in preorder. */
+    public int[] getNodesWithLabel(L label) {
+        return getNodes(nodeLabel -> Objects.equals(nodeLabel, label));
+    }
+
+    // Traversals
+
+    /**
+     * Folds the subtree of the specified node bottom-up, analogously to {@link Tree#fold(Function,
+     * BiFunction)}.
+     *
+     * @param node The root of the subtree to fold.
+     * @param leaf The function calculating the output of a leaf from its label.
+     * @param combine The function calculating the output of an inner node from its label and the
+     *     outputs of its children.
+     * @return The output of the subtree.
+     */
+    @SuppressWarnings("unchecked")
+    public <O> O fold(
+            int node,
+            Function<? super L, ? extends O> leaf,
+            BiFunction<? super L, List<O>, ? extends O> combine) {
+        // in reverse preorder, all children of a node are handled before the node itself
+        int end = getSubtreeEnd(node);
+        Object[] outputs = new Object[end - node];
+        for (int current = end - 1; current >= node; current--) {
+            if (isLeaf(current)) {
+                outputs[current - node] = leaf.apply(getLabel(current));
+                continue;
+            }
+            List<O> childrenOutput = new ArrayList<>();
+            for (int child = firstChild[current]; child != NONE; child = nextSibling[child]) {
+                childrenOutput.add((O) outputs[child - node]);
+                outputs[child - node] = null;
+            }
+            outputs[current - node] = combine.apply(getLabel(current), childrenOutput);
+        }
+        return (O) outputs[0];
+    }
+
+    /**
+     * Folds this tree bottom-up.
+     *
+     * @see #fold(int, Function, BiFunction)
+     */
+    public <O> O fold(
+            Function<? super L, ? extends O> leaf,
+            BiFunction<? super L, List<O>, ? extends O> combine) {
+        return fold(getRoot(), leaf, combine);
+    }
+
+    /**
+     * Executes a traversal of this tree according to the specified strategy, which receives the
+     * nodes as items. The methods of the strategy are called in the same order as by {@link
+     * Tree#traverse(TraversalStrategy)}.
+     *
+     * @param strategy The strategy to use to calculate an output.
+     * @return The output of this traversal.
+     */
+    public <O> O traverse(TraversalStrategy<Integer, O> strategy) {
+        List<List<O>> childrenOutputs = new ArrayList<>();
+        int node = getRoot();
+        int[] nextChildren = new int[16];
+
+        strategy.visit(node);
+        strategy.nextLevel();
+        childrenOutputs.add(new ArrayList<>());
+        nextChildren[0] = firstChild[node];
+
+        while (true) {
+            int top = childrenOutputs.size() - 1;
+            if (nextChildren[top] != NONE) {
+                int child = nextChildren[top];
+                nextChildren[top] = nextSibling[child];
+                strategy.visit(child);
+                strategy.nextLevel();
+                if (top + 1 == nextChildren.length)
+                    nextChildren = Arrays.copyOf(nextChildren, 2 * nextChildren.length);
+                nextChildren[top + 1] = firstChild[child];
+                childrenOutputs.add(new ArrayList<>());
+                node = child;
+                continue;
+            }
+
+            strategy.previousLevel();
+            O output = strategy.inspect(node, childrenOutputs.get(top));
+
+            // hand the output to the parent, which is finished as well if its preinspection
+            // yields a result
+            while (true) {
+                childrenOutputs.remove(top);
+                if (top == 0) return output;
+                top--;
+                node = parent[node];
+
+                List<O> parentChildrenOutput = childrenOutputs.get(top);
+                parentChildrenOutput.add(output);
+                Optional<O> preresult = strategy.preinspect(node, parentChildrenOutput);
+                if (!preresult.isPresent()) break;
+                output = preresult.get();
+            }
+            strategy.nextSibling();
+        }
+    }
+
+    // Conversion
+
+    /**
+     * Converts this tree into a {@link Tree}.
+     *
+     * @param factory The function creating a node from its label and its (already created)
+     *     children.
+     * @return The root of the created tree.
+     */
+    public <T extends Tree<T>> T toTree(BiFunction<? super L, List<T>, ? extends T> factory) {
+        return toTree(getRoot(), factory);
+    }
+
+    /**
+     * Converts the subtree of the specified node into a {@link Tree}.
+     *
+     * @param node The root of the subtree to convert.
+     * @param factory The function creating a node from its label and its (already created)
+     *     children.
+     * @return The root of the created tree.
+     */
+    public <T extends Tree<T>> T toTree(
+            int node, BiFunction<? super L, List<T>, ? extends T> factory) {
+        return fold(node, label -> factory.apply(label, new ArrayList<>()), factory);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        CompactTree<?> other = (CompactTree<?>) obj;
+        return Arrays.equals(parent, other.parent)
+                && Arrays.equals(firstChild, other.firstChild)
+                && Arrays.equals(nextSibling, other.nextSibling)
+                && Arrays.equals(labels, other.labels);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(parent);
+        result = 31 * result + Arrays.hashCode(nextSibling);
+        result = 31 * result + Arrays.hashCode(labels);
+        return result;
+    }
+}
@@ -0,0 +1,292 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable path in a tree, i.e. the sequence of child indices leading from the root of a tree
+ * to one of its nodes.
+ *
+ * <p>In contrast to {@link TreePath}, which is a mutable {@link java.util.Stack} of boxed integers,
+ * an immutable path stores the indices in an array of primitive integers. Paths derived by {@link
+ * #getParent()}, {@link #getPathUpTo(int)} or {@link #getLowestCommonAncestor(ImmutableTreePath)}
+ * share this array with the original path and are thus created in constant time. The hash code is
+ * cached, and comparisons as well as the ancestor/descendant tests do not allocate any objects.
+ *
+ * <p>Existing code based on {@link TreePath} can be migrated step by step: {@link #of(TreePath)}
+ * and {@link TreePath#toImmutable()} convert a mutable path into an immutable one, {@link
+ * #toTreePath()} and {@link TreePath#TreePath(ImmutableTreePath)} convert back. Both
+ * representations are ordered in the same way and have the same string representation.
+ */
+public final class ImmutableTreePath implements Comparable<ImmutableTreePath>, Serializable {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // STATIC ATTRIBUTES AND METHODS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** For serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** The empty path, i.e. the path of the root. */
+    public static final ImmutableTreePath ROOT = new ImmutableTreePath(new int[0], 0);
+
+    /**
+     * Creates a path from the specified child indices.
+     *
+     * @param indices The child indices from the root on.
+     * @return The path.
+     * @throws IllegalArgumentException If any index is negative.
+     */
+    public static ImmutableTreePath of(int... indices) {
+        for (int index : indices) checkIndex(index);
+        return new ImmutableTreePath(indices.clone(), indices.length);
+    }
+
+    /**
+     * Creates an immutable copy of the specified path.
+     *
+     * @param path The path to copy.
+     * @return The immutable path.
+     */
+    public static ImmutableTreePath of(TreePath path) {
+        int[] indices = new int[path.size()];
+        for (int i = 0; i < indices.length; i++) indices[i] = path.get(i);
+        return new ImmutableTreePath(indices, indices.length);
+    }
+
+    /**
+     * Parses a path from its string representation as created by {@link #toString()}, e.g.
+     * "-0-2-1".
+     *
+     * @param pathDescription The string representation of the path.
+     * @return The path.
+     * @throws NumberFormatException If the description contains something else than indices.
+     */
+    public static ImmutableTreePath parse(String pathDescription) {
+        return of(new TreePath(pathDescription));
+    }
+
+    private static void checkIndex(int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("Child index may not be negative: " + index);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ATTRIBUTES
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The child indices; only the first {@link #length} ones belong to this path. The array may be
+     * shared with other paths and must never be modified.
+     */
+    private int[] indices;
+
+    /** The length of this path. */
+    private int length;
+
+    /** The cached hash code; 0 if not calculated yet. */
+    private transient int hash;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTORS
+    ///////////////////////////////////////////////////////////////////////////
+
+    private ImmutableTreePath(int[] indices, int length) {
+        this.indices = indices;
+        this.length = length;
+    }
+
+    /** For GWT serialization */
+    @SuppressWarnings("unused")
+    private ImmutableTreePath() {}
+
+    ///////////////////////////////////////////////////////////////////////////
+    // METHODS
+    ///////////////////////////////////////////////////////////////////////////
+
+    public int size() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns the child index at the specified position.
+     *
+     * @param position The position in this path.
+     * @return The child index at the specified position.
+     * @throws IndexOutOfBoundsException If position is negative or not lower than the size.
+     */
+    public int get(int position) {
+        if (position < 0 || position >= length)
+            throw new IndexOutOfBoundsException("Position " + position + " of path " + this);
+        return indices[position];
+    }
+
+    /**
+     * Returns the last child index of this path, i.e. the index of the addressed node among its
+     * siblings.
+     *
+     * @throws IndexOutOfBoundsException If this path is empty.
+     */
+    public int getLast() {
+        return get(length - 1);
+    }
+
+    /**
+     * Returns the path of the specified child of the node addressed by this path.
+     *
+     * @throws IllegalArgumentException If index is negative.
+     */
+    public ImmutableTreePath child(int index) {
+        checkIndex(index);
+        int[] childIndices = Arrays.copyOf(indices, length + 1);
+        childIndices[length] = index;
+        return new ImmutableTreePath(childIndices, length + 1);
+    }
+
+    /**
+     * Returns the path of the specified sibling of the node addressed by this path.
+     *
+     * @throws IllegalArgumentException If index is negative.
+     * @throws IndexOutOfBoundsException If this path is empty.
+     */
+    public ImmutableTreePath sibling(int index) {
+        checkIndex(index);
+        int[] siblingIndices = Arrays.copyOf(indices, length);
+        siblingIndices[length - 1] = index;
+        return new ImmutableTreePath(siblingIndices, length);
+    }
+
+    /**
+     * Returns the path of the parent in constant time.
+     *
+     * @throws IndexOutOfBoundsException If this path is empty.
+     */
+    public ImmutableTreePath getParent() {
+        if (length == 0) throw new IndexOutOfBoundsException("The root has no parent");
+        return new ImmutableTreePath(indices, length - 1);
+    }
+
+    /**
+     * Returns the prefix of this path, which consists of the indices at the positions lower than
+     * the specified one, in constant time.
+     *
+     * @param index The position to cut this path at.
+     * @return The shortened path or this path, if it is not longer than index.
+     */
+    public ImmutableTreePath getPathUpTo(int index) {
+        if (index >= length) return this;
+        if (index < 0)
+            throw new IndexOutOfBoundsException("Position may not be negative: " + index);
+        return new ImmutableTreePath(indices, index);
+    }
+
+    /**
+     * Returns the suffix of this path, which consists of the indices at the specified position and
+     * behind.
+     *
+     * @param index The position to start the suffix at.
+     * @return The suffix, which is empty if this path is not longer than index.
+     */
+    public ImmutableTreePath getPathFrom(int index) {
+        if (index >= length) return ROOT;
+        if (index <= 0) return this;
+        return new ImmutableTreePath(Arrays.copyOfRange(indices, index, length), length - index);
+    }
+
+    /**
+     * Returns the path of the node reached by following the other path from the end of this one.
+     */
+    public ImmutableTreePath concatenate(ImmutableTreePath other) {
+        if (other.length == 0) return this;
+        if (length == 0) return other;
+        int[] concatenated = Arrays.copyOf(indices, length + other.length);
+        System.arraycopy(other.indices, 0, concatenated, length, other.length);
+        return new ImmutableTreePath(concatenated, concatenated.length);
+    }
+
+    /** Returns the longest common prefix of this and the other path. */
+    public ImmutableTreePath getLowestCommonAncestor(final ImmutableTreePath other) {
+        return getPathUpTo(getCommonPrefixLength(other));
+    }
+
+    private int getCommonPrefixLength(final ImmutableTreePath other) {
+        int minLength = Math.min(length, other.length);
+        for (int i = 0; i < minLength; i++) if (indices[i] != other.indices[i]) return i;
+        return minLength;
+    }
+
+    public boolean isAncestorOf(final ImmutableTreePath other) {
+        return length < other.length && getCommonPrefixLength(other) == length;
+    }
+
+    public boolean isDescendantOf(final ImmutableTreePath other) {
+        return other.isAncestorOf(this);
+    }
+
+    public boolean isParentOf(final ImmutableTreePath other) {
+        return other.length == length + 1 && isAncestorOf(other);
+    }
+
+    public boolean isChildOf(final ImmutableTreePath other) {
+        return other.isParentOf(this);
+    }
+
+    public boolean isSiblingOf(final ImmutableTreePath other) {
+        return length > 0 && length == other.length && getCommonPrefixLength(other) == length - 1;
+    }
+
+    /** Returns a new mutable copy of this path. */
+    public TreePath toTreePath() {
+        TreePath path = new TreePath();
+        for (int i = 0; i < length; i++) path.push(indices[i]);
+        return path;
+    }
+
+    /** Returns a new array containing the child indices of this path. */
+    public int[] toArray() {
+        return Arrays.copyOf(indices, length);
+    }
+
+    /**
+     * Compares lexicographically, i.e. in the same order as {@link TreePath#compareTo(TreePath)}.
+     */
+    @Override
+    public int compareTo(ImmutableTreePath other) {
+        int commonPrefixLength = getCommonPrefixLength(other);
+        if (commonPrefixLength < length && commonPrefixLength < other.length)
+            return indices[commonPrefixLength] < other.indices[commonPrefixLength] ? -1 : +1;
+        return Integer.compare(length, other.length);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ImmutableTreePath)) return false;
+        ImmutableTreePath other = (ImmutableTreePath) obj;
+        return length == other.length
+                && hashCode() == other.hashCode()
+                && getCommonPrefixLength(other) == length;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < length; i++) result = 31 * result + indices[i];
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pathDescription = new StringBuilder();
+        for (int i = 0; i < length; i++) pathDescription.append('-').append(indices[i]);
+        return pathDescription.toString();
+    }
+}
@@ -1,58 +1,60 @@
 package de.tudortmund.cs.iltis.utils.tree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-
-/** A postorder iterator for trees. */
+import java.util.List;
+
+/**
+ * A postorder iterator for trees.
+ *
+ * <p>The iterator uses an explicit stack instead of recursion. Hence, it needs amortised constant
+ * time per node and memory linear in the depth of the tree, even for very deep trees.
+ */
 public class PostorderIterator<T extends Tree<? extends T>> implements Iterator<T> {
     /**
-     * The current node whose children are traversed. root is null iff the root itself has been
-     * traversed and therefore all children have been traversed as well.
+     * The nodes on the path from the root to the node currently traversed; the root is at index 0.
+     * path is empty iff the root itself has been traversed and therefore all children have been
+     * traversed as well.
      */
-    private T root;
+    private final List<T> path;
 
-    /** The number of the next child tree, which is going to be traversed. */
-    private int nextChildNo;
-
-    /**
-     * The PostorderIterator for the current child. childIterator is null iff there are no further
-     * children to traverse.
-     */
-    private PostorderIterator<? extends T> childIterator;
+    /** For each node on {@link #path}, the number of its next child to traverse. */
+    private int[] nextChildNos;
 
     public PostorderIterator(T root) {
         if (root == null) throw new IllegalArgumentException("root may not be null");
-        this.root = root;
-        this.nextChildNo = 0;
-        this.setNextChildIterator();
+        this.path = new ArrayList<>();
+        this.nextChildNos = new int[16];
+        this.push(root);
     }
 
     @Override
     public boolean hasNext() {
-        return this.root != null;
+        return !this.path.isEmpty();
     }
 
     @Override
     public T next() {
-        if (this.childIterator != null) {
-            if (!this.childIterator.hasNext())
-                // if there is a child to traverse but its iterator has no more elements,
-                // then we have to continue with the next child
-                this.setNextChildIterator();
-
-            if (this.childIterator != null)
-                // if there is a next child we can traverse,
-                // call its iterator -- this iterator has to have a next element (its root)
-                return this.childIterator.next();
+        while (!this.path.isEmpty()) {
+            int top = this.path.size() - 1;
+            T node = this.path.get(top);
+            if (this.nextChildNos[top] < node.getNumberOfChildren()) {
+                // descend into the next child, which has to be traversed before this node
+                this.push(node.getChild(this.nextChildNos[top]++));
+            } else {
+                // all children have been traversed, so traverse the node itself
+                this.path.remove(top);
+                return node;
+            }
         }
-        // traverse root itself and set end-flag (root=null)
-        T node = this.root;
-        this.root = null;
-        return node;
+        return null;
     }
 
-    private void setNextChildIterator() {
-        if (this.nextChildNo < this.root.getNumberOfChildren())
-            this.childIterator = new PostorderIterator<T>(this.root.getChild(this.nextChildNo++));
-        else this.childIterator = null;
+    private void push(T node) {
+        if (this.path.size() == this.nextChildNos.length)
+            this.nextChildNos = Arrays.copyOf(this.nextChildNos, 2 * this.nextChildNos.length);
+        this.nextChildNos[this.path.size()] = 0;
+        this.path.add(node);
     }
 }
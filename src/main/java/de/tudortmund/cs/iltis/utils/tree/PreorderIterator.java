@@ -1,29 +1,30 @@
 package de.tudortmund.cs.iltis.utils.tree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-
-/** A preorder iterator for trees. */
+import java.util.List;
+
+/**
+ * A preorder iterator for trees.
+ *
+ * <p>The iterator uses an explicit stack instead of recursion. Hence, it needs amortised constant
+ * time per node and memory linear in the depth of the tree, even for very deep trees.
+ */
 public class PreorderIterator<T extends Tree<? extends T>> implements Iterator<T> {
-    /** The current node whose children are traversed. root is never null. */
-    private T root;
-
-    /** The number of the next child tree, which is going to be traversed. */
-    private int nextChildNo;
+    /** The nodes on the path from the root to the last returned node; the root is at index 0. */
+    private final List<T> path;
 
-    /**
-     * The {@link PreorderIterator} for the current child. childIterator is null iff there are no
-     * further children to traverse.
-     */
-    private PreorderIterator<? extends T> childIterator;
+    /** For each node on {@link #path}, the number of its next child to traverse. */
+    private int[] nextChildNos;
 
     /** Takes the element which is to be returned at the next call of {@link #next()}. */
     private T nextElement;
 
     public PreorderIterator(T root) {
         if (root == null) throw new IllegalArgumentException("root may not be null");
-        this.root = root;
-        nextChildNo = 0;
-        setNextChildIterator();
+        path = new ArrayList<>();
+        nextChildNos = new int[16];
         nextElement = root;
     }
 
@@ -35,28 +36,26 @@ public class PreorderIterator<T extends Tree<? extends T>> implements Iterator<T
     @Override
     public T next() {
         T nodeToReturn = nextElement;
-
-        if (childIterator != null) {
-            if (!childIterator.hasNext())
-                // if there is a child to traverse but its iterator has no more elements,
-                // then we have to continue with the next child
-                setNextChildIterator();
-
-            if (childIterator != null)
-                // if there is a next child we can traverse,
-                // call its iterator -- this iterator has to have a next element (its root)
-                nextElement = childIterator.next();
-            else nextElement = null;
-        } else {
-            nextElement = null;
+        if (nodeToReturn == null) return null;
+
+        // the children of the returned node are traversed next
+        if (path.size() == nextChildNos.length)
+            nextChildNos = Arrays.copyOf(nextChildNos, 2 * nextChildNos.length);
+        nextChildNos[path.size()] = 0;
+        path.add(nodeToReturn);
+
+        // find the next untraversed child of the deepest node, which has one
+        nextElement = null;
+        while (!path.isEmpty()) {
+            int top = path.size() - 1;
+            T node = path.get(top);
+            if (nextChildNos[top] < node.getNumberOfChildren()) {
+                nextElement = node.getChild(nextChildNos[top]++);
+                break;
+            }
+            path.remove(top);
         }
 
         return nodeToReturn;
     }
-
-    private void setNextChildIterator() {
-        if (nextChildNo < root.getNumberOfChildren())
-            childIterator = new PreorderIterator<T>(root.getChild(nextChildNo++));
-        else childIterator = null;
-    }
 }
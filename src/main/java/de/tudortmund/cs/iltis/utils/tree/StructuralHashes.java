@@ -0,0 +1,164 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import de.tudortmund.cs.iltis.utils.general.LRUHashCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Calculates structural hash codes of trees, which are stored per node, so the hash code of every
+ * node is calculated only once.
+ *
+ * <p>The hash code of a node combines its {@link Tree#nodeHashCode()} with the hash codes of its
+ * children. Hence, equal trees have equal hash codes, no matter whether they are the same objects.
+ * The hash codes are calculated bottom-up using an explicit stack, so very deep trees can be hashed
+ * as well, and stored by the identity of the nodes. Subtrees whose hash code is stored already are
+ * not visited again, e.g. the subtrees shared by {@link Tree#transformPersistently(TreePath,
+ * Tree)}. Therefore, the hashed trees must not be altered afterwards.
+ *
+ * <p>{@link #keyOf(Tree)} wraps a tree with its hash code, such that trees can be looked up in hash
+ * tables without calculating {@link Tree#hashCode()} recursively on every lookup. The methods of
+ * this class are safe to be used by multiple threads.
+ *
+ * @param <T> The type of the hashed trees
+ */
+public class StructuralHashes<T extends Tree<T>> {
+
+    /** The hash codes of recently hashed nodes by their identity. */
+    private LRUHashCache<Identity<T>, Integer> hashCodes;
+
+    /** Constructs an instance storing the hash codes of all hashed nodes. */
+    public StructuralHashes() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs an instance storing the hash codes of the recently hashed nodes only.
+     *
+     * @param capacity The maximal number of nodes to store the hash codes of.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public StructuralHashes(int capacity) {
+        this.hashCodes = new LRUHashCache<>(capacity);
+    }
+
+    /**
+     * Returns the structural hash code of the specified tree.
+     *
+     * @param tree The tree to hash.
+     * @return The hash code, which is equal for equal trees.
+     */
+    public synchronized int hashCodeOf(T tree) {
+        Optional<Integer> stored = hashCodes.get(new Identity<>(tree));
+        if (stored.isPresent()) return stored.get();
+
+        // Explicit stack of the nodes on the path to the current node and the combined hash codes
+        // of their children hashed so far, together with the index of their next child.
+        List<T> path = new ArrayList<>();
+        List<Integer> nextChildren = new ArrayList<>();
+        List<Integer> childrenHashCodes = new ArrayList<>();
+        path.add(tree);
+        nextChildren.add(0);
+        childrenHashCodes.add(1);
+
+        while (true) {
+            int top = path.size() - 1;
+            T node = path.get(top);
+            int next = nextChildren.get(top);
+
+            if (next < node.getNumberOfChildren()) {
+                T child = node.getChild(next);
+                nextChildren.set(top, next + 1);
+                Optional<Integer> childHashCode = hashCodes.get(new Identity<>(child));
+                if (childHashCode.isPresent()) {
+                    childrenHashCodes.set(
+                            top, 31 * childrenHashCodes.get(top) + childHashCode.get());
+                } else {
+                    path.add(child);
+                    nextChildren.add(0);
+                    childrenHashCodes.add(1);
+                }
+                continue;
+            }
+
+            int hashCode = 31 * node.nodeHashCode() + childrenHashCodes.get(top);
+            hashCodes.put(new Identity<>(node), hashCode);
+            path.remove(top);
+            nextChildren.remove(top);
+            childrenHashCodes.remove(top);
+            if (top == 0) return hashCode;
+            childrenHashCodes.set(top - 1, 31 * childrenHashCodes.get(top - 1) + hashCode);
+        }
+    }
+
+    /**
+     * Returns a key for the specified tree, whose hash code is the structural hash code of the tree
+     * and which equals the keys of all equal trees.
+     *
+     * @param tree The tree to create a key for.
+     * @return The key.
+     */
+    public Key<T> keyOf(T tree) {
+        return new Key<>(tree, hashCodeOf(tree));
+    }
+
+    /** Removes all stored hash codes. */
+    public synchronized void clear() {
+        hashCodes = new LRUHashCache<>(hashCodes.getCapacity());
+    }
+
+    /**
+     * A tree together with its structural hash code.
+     *
+     * <p>Keys are compared by the hash codes first; only keys with equal hash codes are compared by
+     * {@link Tree#equals(Object)} of their trees, unless they wrap the same tree.
+     *
+     * @param <T> The type of the tree
+     */
+    public static final class Key<T extends Tree<T>> {
+        private final T tree;
+        private final int hashCode;
+
+        private Key(T tree, int hashCode) {
+            this.tree = tree;
+            this.hashCode = hashCode;
+        }
+
+        /** Returns the wrapped tree. */
+        public T getTree() {
+            return tree;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key<?> other = (Key<?>) obj;
+            return hashCode == other.hashCode && (tree == other.tree || tree.equals(other.tree));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /** Wraps a node to be compared by identity. */
+    private static final class Identity<T> {
+        private final T node;
+
+        private Identity(T node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Identity && ((Identity<?>) obj).node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(node);
+        }
+    }
+}
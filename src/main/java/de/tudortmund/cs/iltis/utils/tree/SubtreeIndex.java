@@ -0,0 +1,215 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import de.tudortmund.cs.iltis.utils.tree.transformations.SignatureFilteredTransformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * An index of all nodes of a tree by a cheap signature, e.g. their label or their arity.
+ *
+ * <p>The index finds the applications of a transformation by checking only the nodes with certain
+ * signatures instead of all nodes of the tree, see {@link SignatureFilteredTransformation}. When a
+ * subtree is replaced via {@link #replace(ImmutableTreePath, Tree)}, the tree is updated by path
+ * copying and the index is updated incrementally: only the entries of the replaced subtree, the new
+ * subtree and the ancestors of the replaced subtree are touched.
+ *
+ * @param <T> The type of the nodes of the tree
+ * @param <K> The type of signatures
+ */
+public class SubtreeIndex<T extends Tree<T>, K> {
+
+    /** The indexed tree. */
+    private T root;
+
+    /** The function calculating the signature of a node. */
+    private final Function<? super T, ? extends K> signature;
+
+    /** For every signature, the paths of all nodes with this signature and the nodes themselves. */
+    private final Map<K, NavigableMap<ImmutableTreePath, T>> nodesBySignature;
+
+    /**
+     * The signatures of all nodes by their paths, as calculated when the nodes were indexed. Nodes
+     * are removed by these signatures, so the signature function is applied once per node.
+     */
+    private final NavigableMap<ImmutableTreePath, K> signatureByPath;
+
+    /**
+     * Constructs an index of all nodes of the specified tree.
+     *
+     * @param root The tree to index.
+     * @param signature The function calculating the signature of a node.
+     */
+    public SubtreeIndex(T root, Function<? super T, ? extends K> signature) {
+        this.root = root;
+        this.signature = signature;
+        this.nodesBySignature = new HashMap<>();
+        this.signatureByPath = new TreeMap<>();
+        addSubtree(ImmutableTreePath.ROOT, root);
+    }
+
+    /** Returns the indexed tree including all replacements made so far. */
+    public T getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns all nodes with the specified signature ordered by their paths.
+     *
+     * @param signature The signature of the nodes to return.
+     * @return An unmodifiable map from paths to nodes.
+     */
+    public NavigableMap<ImmutableTreePath, T> getNodes(K signature) {
+        NavigableMap<ImmutableTreePath, T> nodes = nodesBySignature.get(signature);
+        return nodes == null
+                ? Collections.emptyNavigableMap()
+                : Collections.unmodifiableNavigableMap(nodes);
+    }
+
+    /**
+     * Returns the paths of all nodes with one of the specified signatures, to which the specified
+     * transformation is applicable.
+     *
+     * @param transformation The transformation to check.
+     * @param signatures The signatures of the nodes to check.
+     * @return The paths of all applications in the same order as {@link
+     *     Tree#getAllApplications(Transformation)}.
+     */
+    public SortedSet<TreePath> getAllApplications(
+            Transformation<T> transformation, Collection<? extends K> signatures) {
+        SortedSet<TreePath> applications = new TreeSet<>();
+        for (K signature : new HashSet<>(signatures))
+            for (Map.Entry<ImmutableTreePath, T> entry : getNodes(signature).entrySet())
+                if (transformation.isApplicable(entry.getValue()))
+                    applications.add(entry.getKey().toTreePath());
+        return applications;
+    }
+
+    /**
+     * Returns the paths of all applications of the specified transformation, whose signature
+     * function has to be the one of this index.
+     *
+     * @see #getAllApplications(Transformation, Collection)
+     */
+    public SortedSet<TreePath> getAllApplications(
+            SignatureFilteredTransformation<T, ? extends K> transformation) {
+        return getAllApplications(transformation, transformation.getApplicableSignatures());
+    }
+
+    /**
+     * Returns the first path (wrt. the order of paths) of a node in the subtree at the specified
+     * path, which has one of the specified signatures and to which the specified transformation is
+     * applicable.
+     *
+     * @param transformation The transformation to check.
+     * @param signatures The signatures of the nodes to check.
+     * @param below The path of the subtree to search in.
+     * @return The path of the first application, if there is any.
+     */
+    public Optional<ImmutableTreePath> getFirstApplication(
+            Transformation<T> transformation,
+            Collection<? extends K> signatures,
+            ImmutableTreePath below) {
+        ImmutableTreePath first = null;
+        for (K signature : signatures) {
+            NavigableMap<ImmutableTreePath, T> nodes = nodesBySignature.get(signature);
+            if (nodes == null) continue;
+            // the subtree at below is a contiguous range starting at below
+            for (Map.Entry<ImmutableTreePath, T> entry : nodes.tailMap(below, true).entrySet()) {
+                ImmutableTreePath path = entry.getKey();
+                if (first != null && path.compareTo(first) >= 0) break;
+                if (!path.equals(below) && !path.isDescendantOf(below)) break;
+                if (transformation.isApplicable(entry.getValue())) {
+                    first = path;
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * Replaces the subtree at the specified path by the specified tree and updates this index.
+     *
+     * <p>The tree is updated by {@link Tree#transformPersistently(ImmutableTreePath, Tree)}, i.e.
+     * only the ancestors of the replaced subtree are copied. Trees returned by {@link #getRoot()}
+     * before are not altered.
+     *
+     * @param path The path of the subtree to replace.
+     * @param newTree The tree to insert at the specified path.
+     * @throws IllegalArgumentException If the path does not exist in the tree.
+     */
+    @SuppressWarnings("unchecked")
+    public void replace(ImmutableTreePath path, T newTree) {
+        root = (T) root.transformPersistently(path, newTree);
+        removeSubtree(path);
+
+        // the ancestors have been replaced by copies
+        T ancestor = root;
+        for (int depth = 0; depth < path.size(); depth++) {
+            ImmutableTreePath ancestorPath = path.getPathUpTo(depth);
+            remove(ancestorPath);
+            add(signature.apply(ancestor), ancestorPath, ancestor);
+            ancestor = ancestor.getChild(path.get(depth));
+        }
+
+        addSubtree(path, newTree);
+    }
+
+    private void addSubtree(ImmutableTreePath path, T subtree) {
+        List<T> stack = new ArrayList<>();
+        List<ImmutableTreePath> paths = new ArrayList<>();
+        stack.add(subtree);
+        paths.add(path);
+        while (!stack.isEmpty()) {
+            T node = stack.remove(stack.size() - 1);
+            ImmutableTreePath nodePath = paths.remove(paths.size() - 1);
+            add(signature.apply(node), nodePath, node);
+            for (int i = 0; i < node.getNumberOfChildren(); i++) {
+                stack.add(node.getChild(i));
+                paths.add(nodePath.child(i));
+            }
+        }
+    }
+
+    private void removeSubtree(ImmutableTreePath path) {
+        if (path.isEmpty()) {
+            nodesBySignature.clear();
+            signatureByPath.clear();
+            return;
+        }
+
+        // the subtree at path is a contiguous range starting at path
+        NavigableMap<ImmutableTreePath, K> subtree =
+                signatureByPath.subMap(path, true, path.sibling(path.getLast() + 1), false);
+        for (Map.Entry<ImmutableTreePath, K> entry : subtree.entrySet()) {
+            NavigableMap<ImmutableTreePath, T> nodes = nodesBySignature.get(entry.getValue());
+            nodes.remove(entry.getKey());
+            if (nodes.isEmpty()) nodesBySignature.remove(entry.getValue());
+        }
+        subtree.clear();
+    }
+
+    private void add(K nodeSignature, ImmutableTreePath path, T node) {
+        nodesBySignature.computeIfAbsent(nodeSignature, key -> new TreeMap<>()).put(path, node);
+        signatureByPath.put(path, nodeSignature);
+    }
+
+    private void remove(ImmutableTreePath path) {
+        K nodeSignature = signatureByPath.remove(path);
+        NavigableMap<ImmutableTreePath, T> nodes = nodesBySignature.get(nodeSignature);
+        nodes.remove(path);
+        if (nodes.isEmpty()) nodesBySignature.remove(nodeSignature);
+    }
+}
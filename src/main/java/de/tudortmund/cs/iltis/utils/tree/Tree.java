@@ -8,7 +8,11 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Basic class for tree-like structures.
@@ -58,6 +62,15 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
     /** List of all children of this tree. */
     protected List<T> children;
 
+    /**
+     * Flag, if {@link #getClonedChildren()} currently hands out the children themselves instead of
+     * clones; only set during {@link #shallowClone()}.
+     */
+    private transient boolean cloneShallowly;
+
+    /** Unmodifiable view of {@link #children}, created on demand by {@link #childrenView()}. */
+    private transient List<T> childrenView;
+
     ///////////////////////////////////////////////////////////////////////////
     // CONSTRUCTORS
     ///////////////////////////////////////////////////////////////////////////
@@ -160,6 +173,30 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         return Data.newArrayList(children);
     }
 
+    /**
+     * Returns an unmodifiable view of the children of this tree.
+     *
+     * <p>In contrast to {@link #getChildren()}, the children are not copied, and the same view is
+     * returned on every call. Hence, changes of this tree do reflect on the returned list.
+     *
+     * @return A read-only list of children.
+     */
+    public List<T> childrenView() {
+        if (childrenView == null) childrenView = Collections.unmodifiableList(children);
+        return childrenView;
+    }
+
+    /**
+     * Performs the specified action for every child of this tree and its index without copying the
+     * children.
+     *
+     * @param action The action to perform.
+     */
+    public void forEachChild(ObjIntConsumer<? super T> action) {
+        for (int index = 0; index < children.size(); index++)
+            action.accept(children.get(index), index);
+    }
+
     /**
      * Add the specified subtree at last position.
      *
@@ -222,6 +259,21 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         children.add(index, subtree);
     }
 
+    /**
+     * Replaces the child at the specified position by the specified subtree.
+     *
+     * @param index The index of the child to replace.
+     * @param subtree The new child.
+     * @throws IllegalArgumentException If index is lower than zero or greater than or equal to the
+     *     number of children of this tree.
+     * @throws NullPointerException if subtree is {@code null}
+     */
+    protected void setChild(int index, final T subtree) {
+        getChild(index); // checks the index
+        if (subtree == null) throw new NullPointerException("Subtree may not be null");
+        children.set(index, subtree);
+    }
+
     // Iterator management
 
     @SuppressWarnings("unchecked")
@@ -238,6 +290,24 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         return postorderDescendantIterator();
     }
 
+    /**
+     * Returns a cursor pointing to this tree, which allows to navigate and edit this tree locally.
+     *
+     * @return A new cursor.
+     */
+    @SuppressWarnings("unchecked")
+    public TreeCursor<T> cursor() {
+        return new TreeCursor<>((T) this);
+    }
+
+    /**
+     * Returns all nodes returned by the specified iterator.
+     *
+     * <p>The iterators of this class use explicit stacks, so even very deep trees can be handled.
+     *
+     * @param iterator The iterator to exhaust.
+     * @return A new list containing all nodes in the order of the iterator.
+     */
     public List<T> getDescendants(Iterator<? extends T> iterator) {
         List<T> descendants = new ArrayList<>();
         iterator.forEachRemaining(descendants::add);
@@ -249,7 +319,40 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
     }
 
     public List<T> getLeaves() {
-        return Data.filter(this.getDescendants(), Tree::isLeaf);
+        return leafStream().collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a sequential stream of all nodes of this tree in preorder.
+     *
+     * <p>Nodes are only reached when the stream is consumed, so short-circuiting operations like
+     * {@link Stream#anyMatch(java.util.function.Predicate)} do not visit the whole tree.
+     *
+     * @return A stream of this tree and all of its descendants.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<T> stream() {
+        return StreamSupport.stream(new TreeSpliterator<>((T) this), false);
+    }
+
+    /**
+     * Returns a parallel stream of all nodes of this tree, which is split at subtree boundaries.
+     *
+     * @return A possibly parallel stream of this tree and all of its descendants.
+     * @see #stream()
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(new TreeSpliterator<>((T) this), true);
+    }
+
+    /**
+     * Returns a sequential stream of all leaves of this tree from left to right.
+     *
+     * @return A stream of the leaves of this tree.
+     */
+    public Stream<T> leafStream() {
+        return stream().filter(Tree::isLeaf);
     }
 
     // Traversals
@@ -269,22 +372,77 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
      *   <li>{@link TraversalStrategy#previousLevel()} is called when returning to higher level.
      * </ul>
      *
+     * <p>The traversal uses an explicit stack instead of recursion, so very deep trees can be
+     * traversed as well.
+     *
      * @param strategy The strategy to use to calculate an output.
      * @return The output of this traversal.
      */
     @SuppressWarnings("unchecked")
     public <O> O traverse(TraversalStrategy<T, O> strategy) {
-        List<O> childrenOutput = new ArrayList<>();
+        // Explicit stack of the nodes on the path to the current node and the outputs of their
+        // children traversed so far; thus, deep trees do not exhaust the call stack. The number of
+        // outputs of a node is the index of its next child to traverse.
+        List<T> path = new ArrayList<>();
+        List<List<O>> childrenOutputs = new ArrayList<>();
+
         strategy.visit((T) this);
         strategy.nextLevel();
-        for (T child : children) {
-            childrenOutput.add(child.traverse(strategy));
-            Optional<O> preresult = strategy.preinspect((T) this, childrenOutput);
-            if (preresult.isPresent()) return preresult.get();
+        path.add((T) this);
+        childrenOutputs.add(new ArrayList<>());
+
+        while (true) {
+            int top = path.size() - 1;
+            T node = path.get(top);
+            List<O> childrenOutput = childrenOutputs.get(top);
+
+            if (childrenOutput.size() < node.children.size()) {
+                T child = node.children.get(childrenOutput.size());
+                strategy.visit(child);
+                strategy.nextLevel();
+                path.add(child);
+                childrenOutputs.add(new ArrayList<>());
+                continue;
+            }
+
+            strategy.previousLevel();
+            O output = strategy.inspect(node, childrenOutput);
+
+            // hand the output to the parent, which is finished as well if its preinspection
+            // yields a result
+            while (true) {
+                path.remove(top);
+                childrenOutputs.remove(top);
+                if (top == 0) return output;
+                top--;
+
+                List<O> parentChildrenOutput = childrenOutputs.get(top);
+                parentChildrenOutput.add(output);
+                Optional<O> preresult = strategy.preinspect(path.get(top), parentChildrenOutput);
+                if (!preresult.isPresent()) break;
+                output = preresult.get();
+            }
             strategy.nextSibling();
         }
-        strategy.previousLevel();
-        return strategy.inspect((T) this, childrenOutput);
+    }
+
+    /**
+     * Folds this tree bottom-up.
+     *
+     * <p>The output of a leaf is calculated by leaf, the output of an inner node by combine from
+     * the node itself and the outputs of its children (in their order). This is a shorthand for a
+     * {@link #traverse(TraversalStrategy) traversal} by a strategy that only inspects nodes.
+     *
+     * @param leaf The function calculating the output of a leaf.
+     * @param combine The function calculating the output of an inner node.
+     * @return The output of this tree.
+     */
+    public <O> O fold(
+            Function<? super T, ? extends O> leaf,
+            BiFunction<? super T, List<O>, ? extends O> combine) {
+        return traverse(
+                (node, childrenOutput) ->
+                        node.isLeaf() ? leaf.apply(node) : combine.apply(node, childrenOutput));
     }
 
     public Set<TreePath> getAllApplications(Transformation<T> transformation) {
@@ -295,10 +453,18 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         return this.retrieve(path, 0);
     }
 
+    @SuppressWarnings("unchecked")
+    public T retrieve(final ImmutableTreePath path) {
+        T node = (T) this;
+        for (int i = 0; i < path.size(); i++) node = node.getChild(path.get(i));
+        return node;
+    }
+
     @SuppressWarnings("unchecked")
     protected T retrieve(final TreePath path, final int index) {
-        if (path.size() == index) return (T) this;
-        return this.getChild(path.get(index)).retrieve(path, index + 1);
+        T node = (T) this;
+        for (int i = index; i < path.size(); i++) node = node.getChild(path.get(i));
+        return node;
     }
 
     public Tree<T> transform(TreePath path, T newTree) {
@@ -314,6 +480,134 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         return result;
     }
 
+    /**
+     * Replaces the subtree at the specified path by the specified tree without altering this tree.
+     *
+     * <p>In contrast to {@link #transform(TreePath, Tree)}, only the nodes on the path from the
+     * root to the replaced subtree are copied, all other subtrees are shared between this tree and
+     * the returned tree. Hence, the effort is linear in the length of the path (and the arity of
+     * the nodes on it) instead of in the size of this tree. Because of the sharing, neither this
+     * tree nor the returned tree should be altered afterwards.
+     *
+     * @param path The path of the subtree to replace.
+     * @param newTree The tree to insert at the specified path.
+     * @return The tree resulting from the replacement.
+     * @throws IllegalArgumentException If the path does not exist in this tree.
+     */
+    public Tree<T> transformPersistently(TreePath path, T newTree) {
+        return transformPersistently(path.toImmutable(), newTree);
+    }
+
+    /**
+     * Replaces the subtree at the specified path by the specified tree without altering this tree.
+     *
+     * @see #transformPersistently(TreePath, Tree)
+     */
+    @SuppressWarnings("unchecked")
+    public Tree<T> transformPersistently(ImmutableTreePath path, T newTree) {
+        if (path.isEmpty()) {
+            return newTree;
+        }
+
+        List<T> spine = new ArrayList<>(path.size());
+        T node = (T) this;
+        for (int depth = 0; depth < path.size(); depth++) {
+            spine.add(node);
+            node = node.getChild(path.get(depth));
+        }
+
+        T result = newTree;
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            T parent = spine.get(depth).shallowClone();
+            parent.setChild(path.get(depth), result);
+            result = parent;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the subtrees at several disjoint paths without altering this tree.
+     *
+     * <p>All replacements are done in a single pass: every common ancestor of the replaced subtrees
+     * is copied only once, all other subtrees are shared between this tree and the returned tree,
+     * just like in {@link #transformPersistently(TreePath, Tree)}.
+     *
+     * @param replacements The trees to insert by the paths of the subtrees to replace.
+     * @return The tree resulting from the replacements or this tree, if there are none.
+     * @throws IllegalArgumentException If a path does not exist in this tree or one path is a
+     *     descendant of another.
+     */
+    @SuppressWarnings("unchecked")
+    public Tree<T> transformAllPersistently(Map<TreePath, ? extends T> replacements) {
+        NavigableMap<ImmutableTreePath, T> sorted = new TreeMap<>();
+        for (Map.Entry<TreePath, ? extends T> replacement : replacements.entrySet())
+            sorted.put(replacement.getKey().toImmutable(), replacement.getValue());
+        if (sorted.isEmpty()) {
+            return this;
+        }
+
+        // in the order of paths, a descendant of a path would follow it immediately
+        ImmutableTreePath previous = null;
+        for (ImmutableTreePath path : sorted.keySet()) {
+            if (previous != null && path.isDescendantOf(previous))
+                throw new IllegalArgumentException(
+                        "Paths are not disjoint: " + previous + " and " + path);
+            previous = path;
+        }
+        if (previous.isEmpty()) {
+            return sorted.get(previous);
+        }
+
+        T result = shallowClone();
+        Map<ImmutableTreePath, T> copies = new HashMap<>();
+        for (Map.Entry<ImmutableTreePath, T> replacement : sorted.entrySet()) {
+            ImmutableTreePath path = replacement.getKey();
+            T parent = result;
+            for (int depth = 1; depth < path.size(); depth++) {
+                ImmutableTreePath ancestorPath = path.getPathUpTo(depth);
+                T copy = copies.get(ancestorPath);
+                if (copy == null) {
+                    copy = parent.getChild(path.get(depth - 1)).shallowClone();
+                    parent.setChild(path.get(depth - 1), copy);
+                    copies.put(ancestorPath, copy);
+                }
+                parent = copy;
+            }
+            parent.setChild(path.getLast(), replacement.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Clones only the root node of this tree, i.e. the returned tree has its own children list
+     * containing the very same children as this tree.
+     *
+     * <p>The children list can be altered independently, e.g. by {@link #setChild(int, Tree)}, but
+     * the children themselves are shared, so alterations of descendants do reflect on both trees.
+     * Hence, this clone is meant for trees whose descendants are not altered anymore, e.g. for path
+     * copying as in {@link #transformPersistently(TreePath, Tree)}. In contrast to {@link
+     * #clone()}, the effort is linear in the number of children instead of in the size of this
+     * tree.
+     *
+     * <p><b>Implementation note:</b> Delegates to {@link #clone()}, during which {@link
+     * #getClonedChildren()} returns the children of this tree uncloned. Subclasses overriding
+     * {@link #clone()} hence support shallow clones as long as they obtain the children of the
+     * clone via {@link #getClonedChildren()}; the order in which they add them is kept.
+     *
+     * @return A shallow clone of this tree.
+     */
+    @SuppressWarnings("unchecked")
+    public T shallowClone() {
+        synchronized (this) {
+            cloneShallowly = true;
+            try {
+                return (T) clone();
+            } finally {
+                cloneShallowly = false;
+            }
+        }
+    }
+
     /** Clones this tree. */
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     public Tree<T> clone() {
@@ -342,8 +636,18 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
     	return clone;
     */
 
+    /**
+     * Returns clones of all children of this tree to be used as children of a clone of this tree.
+     *
+     * <p>While a {@link #shallowClone()} is in progress, the children themselves are returned.
+     *
+     * @return A new list of (cloned) children.
+     */
     @SuppressWarnings("unchecked")
     protected List<T> getClonedChildren() {
+        synchronized (this) {
+            if (cloneShallowly) return new ArrayList<>(children);
+        }
         List<T> clonedChildren = new ArrayList<>();
         children.forEach(child -> clonedChildren.add((T) child.clone()));
         return clonedChildren;
@@ -357,6 +661,22 @@ public class Tree<T extends Tree<T>> implements Serializable, Cloneable {
         return result;
     }
 
+    /**
+     * Returns a hash code of the attributes of this node apart from its children, which is combined
+     * with the hash codes of the children to a structural hash code without recursion (see {@link
+     * StructuralHashes}).
+     *
+     * <p>Like {@link #hashCode()}, this method has to be consistent with {@link #equals(Object)}:
+     * subclasses comparing additional attributes should override it and combine the hash codes of
+     * these attributes. The default implementation returns the same value for all nodes, which is
+     * correct but lets all trees of the same shape collide.
+     *
+     * @return the hash code of this node without its children
+     */
+    protected int nodeHashCode() {
+        return 0;
+    }
+
     /**
      * Checks equality of this tree against the given object.
      *
@@ -0,0 +1,217 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A cursor (also known as zipper) pointing to a node of a tree, which can be moved and edited
+ * locally without altering the tree.
+ *
+ * <p>The cursor keeps the path from the root to the current node, the <em>focus</em>. Moving to a
+ * child, the parent or a sibling as well as replacing the focus take constant time, independent of
+ * the size of the tree and the depth of the focus. Edits become visible in the ancestors of the
+ * focus when moving up: then, the parent is copied by {@link Tree#shallowClone()} once and all
+ * further edits below it are stored in this copy. Hence, the tree obtained by {@link #toRoot()}
+ * shares all unchanged subtrees with the original tree, which itself is never altered.
+ *
+ * <p>Nodes are only altered by the cursor as long as they have not been handed out by {@link
+ * #getFocus()}, so all trees returned by a cursor may be used safely.
+ *
+ * @param <T> The type of the nodes of the tree
+ */
+public class TreeCursor<T extends Tree<T>> {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ATTRIBUTES
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** The current node. */
+    private T focus;
+
+    /** Flag, if the focus differs from the corresponding child of its parent. */
+    private boolean focusChanged;
+
+    /** Flag, if the focus has been created by this cursor and not been handed out yet. */
+    private boolean focusOwned;
+
+    /** The ancestors of the focus; the root is at index 0. */
+    private final List<T> ancestors;
+
+    /** For each ancestor, the index of the child on the path to the focus. */
+    private int[] indices;
+
+    /** For each ancestor, the flag corresponding to {@link #focusChanged}. */
+    private boolean[] ancestorsChanged;
+
+    /** For each ancestor, the flag corresponding to {@link #focusOwned}. */
+    private boolean[] ancestorsOwned;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTORS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Constructs a cursor pointing to the root of the specified tree.
+     *
+     * @param root The tree to navigate in.
+     * @throws NullPointerException If root is {@code null}.
+     */
+    public TreeCursor(T root) {
+        if (root == null) throw new NullPointerException("root may not be null");
+        this.focus = root;
+        this.ancestors = new ArrayList<>();
+        this.indices = new int[16];
+        this.ancestorsChanged = new boolean[16];
+        this.ancestorsOwned = new boolean[16];
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // METHODS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the current node including all edits made below it so far.
+     *
+     * @return The current node.
+     */
+    public T getFocus() {
+        focusOwned = false;
+        return focus;
+    }
+
+    /** Returns the path from the root to the current node. */
+    public ImmutableTreePath getPath() {
+        return ImmutableTreePath.of(Arrays.copyOf(indices, ancestors.size()));
+    }
+
+    /** Returns the number of ancestors of the current node. */
+    public int getDepth() {
+        return ancestors.size();
+    }
+
+    public boolean isAtRoot() {
+        return ancestors.isEmpty();
+    }
+
+    /**
+     * Moves to the specified child of the current node.
+     *
+     * @param index The index of the child.
+     * @return This cursor.
+     * @throws IllegalArgumentException If the current node has no child with the specified index.
+     */
+    public TreeCursor<T> down(int index) {
+        T child = focus.getChild(index);
+
+        int depth = ancestors.size();
+        if (depth == indices.length) {
+            indices = Arrays.copyOf(indices, 2 * depth);
+            ancestorsChanged = Arrays.copyOf(ancestorsChanged, 2 * depth);
+            ancestorsOwned = Arrays.copyOf(ancestorsOwned, 2 * depth);
+        }
+        ancestors.add(focus);
+        indices[depth] = index;
+        ancestorsChanged[depth] = focusChanged;
+        ancestorsOwned[depth] = focusOwned;
+
+        focus = child;
+        focusChanged = false;
+        focusOwned = false;
+        return this;
+    }
+
+    /**
+     * Moves to the parent of the current node.
+     *
+     * @return This cursor.
+     * @throws TreePathException If the current node is the root.
+     */
+    public TreeCursor<T> up() {
+        if (isAtRoot()) throw new TreePathException("The root has no parent");
+        storeFocusInParent();
+
+        int depth = ancestors.size() - 1;
+        focus = ancestors.remove(depth);
+        focusChanged = ancestorsChanged[depth];
+        focusOwned = ancestorsOwned[depth];
+        return this;
+    }
+
+    /**
+     * Moves to the left sibling of the current node.
+     *
+     * @return This cursor.
+     * @throws TreePathException If the current node is the root or has no left sibling.
+     */
+    public TreeCursor<T> left() {
+        if (isAtRoot() || indices[ancestors.size() - 1] == 0)
+            throw new TreePathException("There is no left sibling");
+        return sibling(indices[ancestors.size() - 1] - 1);
+    }
+
+    /**
+     * Moves to the right sibling of the current node.
+     *
+     * @return This cursor.
+     * @throws TreePathException If the current node is the root or has no right sibling.
+     */
+    public TreeCursor<T> right() {
+        if (isAtRoot()
+                || indices[ancestors.size() - 1]
+                        == ancestors.get(ancestors.size() - 1).getNumberOfChildren() - 1)
+            throw new TreePathException("There is no right sibling");
+        return sibling(indices[ancestors.size() - 1] + 1);
+    }
+
+    private TreeCursor<T> sibling(int index) {
+        storeFocusInParent();
+        int depth = ancestors.size() - 1;
+        focus = ancestors.get(depth).getChild(index);
+        focusChanged = false;
+        focusOwned = false;
+        indices[depth] = index;
+        return this;
+    }
+
+    /**
+     * Replaces the current node by the specified tree, which becomes the new current node.
+     *
+     * @param newTree The tree to replace the current node with.
+     * @return This cursor.
+     * @throws NullPointerException If newTree is {@code null}.
+     */
+    public TreeCursor<T> replace(T newTree) {
+        if (newTree == null) throw new NullPointerException("newTree may not be null");
+        focus = newTree;
+        focusChanged = true;
+        focusOwned = false;
+        return this;
+    }
+
+    /**
+     * Moves to the root, which then reflects all edits made so far.
+     *
+     * @return This cursor.
+     */
+    public TreeCursor<T> toRoot() {
+        while (!isAtRoot()) up();
+        return this;
+    }
+
+    /** Writes a changed focus into its parent, which is copied first unless owned already. */
+    private void storeFocusInParent() {
+        if (!focusChanged) return;
+
+        int depth = ancestors.size() - 1;
+        T parent = ancestors.get(depth);
+        if (!ancestorsOwned[depth]) {
+            parent = parent.shallowClone();
+            ancestors.set(depth, parent);
+            ancestorsOwned[depth] = true;
+            ancestorsChanged[depth] = true;
+        }
+        parent.setChild(indices[depth], focus);
+        focusChanged = false;
+    }
+}
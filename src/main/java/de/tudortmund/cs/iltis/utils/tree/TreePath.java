@@ -6,6 +6,13 @@ import java.util.Iterator;
 import java.util.Stack;
 import javax.annotation.Nullable;
 
+/**
+ * A mutable path in a tree, i.e. the sequence of child indices leading from the root of a tree to
+ * one of its nodes.
+ *
+ * <p>For paths, which are stored, compared or hashed often, consider {@link ImmutableTreePath}
+ * instead; use {@link #toImmutable()} to convert.
+ */
 @SuppressWarnings("serial")
 public class TreePath extends Stack<Integer> implements Comparable<TreePath>, Serializable {
 
@@ -18,6 +25,11 @@ public class TreePath extends Stack<Integer> implements Comparable<TreePath>, Se
         for (int id : other) this.push(id);
     }
 
+    public TreePath(final ImmutableTreePath other) {
+        this();
+        for (int i = 0; i < other.size(); i++) this.push(other.get(i));
+    }
+
     public TreePath(final String pathDescription) {
         this();
         String[] ids = pathDescription.split("-");
@@ -28,10 +40,15 @@ public class TreePath extends Stack<Integer> implements Comparable<TreePath>, Se
         return new TreePath(this);
     }
 
+    /** Returns an immutable copy of this path. */
+    public ImmutableTreePath toImmutable() {
+        return ImmutableTreePath.of(this);
+    }
+
     public String toString() {
-        String pathDescription = "";
-        for (int id : this) pathDescription += "-" + id;
-        return pathDescription;
+        StringBuilder pathDescription = new StringBuilder();
+        for (int id : this) pathDescription.append('-').append(id);
+        return pathDescription.toString();
     }
 
     public TreePath down(final int levels) {
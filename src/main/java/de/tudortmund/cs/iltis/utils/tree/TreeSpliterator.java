@@ -0,0 +1,93 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the nodes of a tree in preorder, which splits at subtree boundaries.
+ *
+ * <p>The spliterator keeps the subtrees still to traverse in order. Splitting hands out the first
+ * half of them; if there is only one subtree left, its root and its children are handled as
+ * separate parts first. No list of all nodes is created.
+ *
+ * <p>The size of a tree is not known without traversing it. Hence, the estimated size starts as
+ * unknown ({@link Long#MAX_VALUE}) and is halved by each split, as for other spliterators of
+ * unknown size, such that streams stop splitting after a few splits per thread instead of splitting
+ * down to single nodes. Independently of that, a spliterator is not split more than {@link
+ * #MAX_SPLIT_DEPTH} times.
+ */
+class TreeSpliterator<T extends Tree<T>> implements Spliterator<T> {
+
+    /** The maximal number of splits leading to a spliterator, i.e. at most 1024 parts. */
+    private static final int MAX_SPLIT_DEPTH = 10;
+
+    /** The parts still to traverse in preorder, each a single node or a whole subtree. */
+    private final Deque<Part<T>> parts;
+
+    /** The number of splits leading to this spliterator. */
+    private int splitDepth;
+
+    TreeSpliterator(T root) {
+        this.parts = new ArrayDeque<>();
+        this.parts.add(new Part<>(root, true));
+    }
+
+    private TreeSpliterator(Deque<Part<T>> parts, int splitDepth) {
+        this.parts = parts;
+        this.splitDepth = splitDepth;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        Part<T> part = parts.pollFirst();
+        if (part == null) return false;
+
+        if (part.withDescendants)
+            for (int i = part.node.getNumberOfChildren() - 1; i >= 0; i--)
+                parts.addFirst(new Part<>(part.node.getChild(i), true));
+        action.accept(part.node);
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (splitDepth >= MAX_SPLIT_DEPTH) return null;
+        if (parts.size() == 1) {
+            Part<T> part = parts.getFirst();
+            if (!part.withDescendants || part.node.isLeaf()) return null;
+            parts.removeFirst();
+            parts.add(new Part<>(part.node, false));
+            for (int i = 0; i < part.node.getNumberOfChildren(); i++)
+                parts.add(new Part<>(part.node.getChild(i), true));
+        }
+        if (parts.size() < 2) return null;
+
+        Deque<Part<T>> prefix = new ArrayDeque<>();
+        for (int i = (parts.size() + 1) / 2; i > 0; i--) prefix.add(parts.removeFirst());
+        splitDepth++;
+        return new TreeSpliterator<>(prefix, splitDepth);
+    }
+
+    @Override
+    public long estimateSize() {
+        return parts.isEmpty() ? 0 : Long.MAX_VALUE >>> splitDepth;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /** A node, possibly together with all of its descendants. */
+    private static class Part<T> {
+        private final T node;
+        private final boolean withDescendants;
+
+        private Part(T node, boolean withDescendants) {
+            this.node = node;
+            this.withDescendants = withDescendants;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Parallel bottom-up folds of trees using the fork-join framework.
+ *
+ * <p>A fold calculates the output of a leaf by a leaf function and the output of an inner node by a
+ * combine function from the node itself and the outputs of its children, just like {@link
+ * Tree#fold(Function, BiFunction)}. The children of a node are split into tasks, which are executed
+ * in parallel: every child with more nodes than a given threshold is folded by a task of its own,
+ * which splits the child further, and consecutive smaller children are folded sequentially by tasks
+ * for ranges of about the threshold many nodes. Hence, both functions have to be thread-safe,
+ * ideally free of side effects.
+ *
+ * <p>The sizes of the subtrees are not calculated beforehand. Instead, a task counts the nodes of
+ * the children of a node alternately, until all but one of them are known to be small or large, and
+ * continues with the remaining child itself. This takes time linear in the size of all children but
+ * the largest one (bounded by the threshold for large children), and it is done within the tasks,
+ * i.e. in parallel.
+ *
+ * <p>As GWT does not emulate {@code java.util.concurrent}, this package is excluded from the GWT
+ * module and can only be used on the server side.
+ */
+public class ParallelTreeFold {
+
+    /**
+     * Folds the specified tree in parallel using the common fork-join pool.
+     *
+     * @param tree The tree to fold.
+     * @param leaf The function calculating the output of a leaf.
+     * @param combine The function calculating the output of an inner node.
+     * @param threshold The maximal number of nodes of a subtree, which is folded sequentially.
+     * @return The output of the tree.
+     * @throws IllegalArgumentException If threshold is not positive.
+     */
+    public static <T extends Tree<T>, O> O fold(
+            T tree,
+            Function<? super T, ? extends O> leaf,
+            BiFunction<? super T, List<O>, ? extends O> combine,
+            int threshold) {
+        return fold(tree, leaf, combine, threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Folds the specified tree in parallel using the specified fork-join pool.
+     *
+     * @param tree The tree to fold.
+     * @param leaf The function calculating the output of a leaf.
+     * @param combine The function calculating the output of an inner node.
+     * @param threshold The maximal number of nodes of a subtree, which is folded sequentially.
+     * @param pool The pool to execute the tasks in.
+     * @return The output of the tree.
+     * @throws IllegalArgumentException If threshold is not positive.
+     */
+    public static <T extends Tree<T>, O> O fold(
+            T tree,
+            Function<? super T, ? extends O> leaf,
+            BiFunction<? super T, List<O>, ? extends O> combine,
+            int threshold,
+            ForkJoinPool pool) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        if (isSmall(tree, threshold)) return tree.fold(leaf, combine);
+        return pool.invoke(new FoldTask<>(tree, leaf, combine, threshold));
+    }
+
+    /** Checks whether the tree has at most threshold many nodes, visiting at most that many. */
+    private static <T extends Tree<T>> boolean isSmall(T tree, int threshold) {
+        Iterator<T> it = tree.preorderDescendantIterator();
+        for (int size = 0; it.hasNext(); size++) {
+            if (size == threshold) return false;
+            it.next();
+        }
+        return true;
+    }
+
+    private static class FoldTask<T extends Tree<T>, O> extends RecursiveTask<O> {
+        private static final long serialVersionUID = 1L;
+
+        private final T tree;
+        private final Function<? super T, ? extends O> leaf;
+        private final BiFunction<? super T, List<O>, ? extends O> combine;
+        private final int threshold;
+
+        FoldTask(
+                T tree,
+                Function<? super T, ? extends O> leaf,
+                BiFunction<? super T, List<O>, ? extends O> combine,
+                int threshold) {
+            this.tree = tree;
+            this.leaf = leaf;
+            this.combine = combine;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected O compute() {
+            // The other children of the nodes on the way down are handed to tasks, the remaining
+            // child is folded by this task. The nodes are collected while descending and combined
+            // afterwards, so long chains of nodes neither nest tasks nor recursion.
+            List<T> spine = new ArrayList<>();
+            List<Split<T, O>> splits = new ArrayList<>();
+            T node = tree;
+            O output = null;
+            while (true) {
+                if (node.isLeaf()) {
+                    output = leaf.apply(node);
+                    break;
+                }
+                Split<T, O> split = split(node);
+                spine.add(node);
+                splits.add(split);
+                if (split.remaining < 0) break;
+                node = node.getChild(split.remaining);
+            }
+
+            for (int i = spine.size() - 1; i >= 0; i--) {
+                T parent = spine.get(i);
+                Split<T, O> split = splits.get(i);
+                List<O> childrenOutput = new ArrayList<>(parent.getNumberOfChildren());
+                for (int j = 0; j < parent.getNumberOfChildren(); j++) childrenOutput.add(null);
+                if (split.remaining >= 0) childrenOutput.set(split.remaining, output);
+                // join in reverse order of forking to pick up tasks not stolen by other workers
+                for (int j = split.parts.size() - 1; j >= 0; j--)
+                    split.parts.get(j).collect(parent, childrenOutput, leaf, combine);
+                output = combine.apply(parent, childrenOutput);
+            }
+            return output;
+        }
+
+        /**
+         * Classifies the children of the node as small or large by counting their nodes
+         * alternately, and forks tasks for all of them but the one which is counted last.
+         */
+        private Split<T, O> split(T node) {
+            int numberOfChildren = node.getNumberOfChildren();
+            int[] sizes = new int[numberOfChildren];
+            List<Iterator<T>> iterators = new ArrayList<>(numberOfChildren);
+            int uncounted = numberOfChildren;
+            for (int i = 0; i < numberOfChildren; i++)
+                iterators.add(node.getChild(i).preorderDescendantIterator());
+            while (uncounted > 1) {
+                for (int i = 0; i < numberOfChildren && uncounted > 1; i++) {
+                    Iterator<T> iterator = iterators.get(i);
+                    if (iterator == null) continue;
+                    if (iterator.hasNext() && sizes[i] <= threshold) {
+                        iterator.next();
+                        sizes[i]++;
+                    } else {
+                        iterators.set(i, null);
+                        uncounted--;
+                    }
+                }
+            }
+
+            // the child still being counted, otherwise the last large child, is not forked
+            int remaining = -1;
+            for (int i = 0; i < numberOfChildren; i++) {
+                if (iterators.get(i) != null) {
+                    remaining = i;
+                    break;
+                }
+                if (sizes[i] > threshold) remaining = i;
+            }
+
+            List<Part<T, O>> parts = new ArrayList<>();
+            int from = 0;
+            int batchSize = 0;
+            for (int i = 0; i <= numberOfChildren; i++) {
+                boolean small = i < numberOfChildren && i != remaining && sizes[i] <= threshold;
+                if (small) {
+                    batchSize += sizes[i];
+                    if (batchSize < threshold) continue;
+                    parts.add(Part.fork(new BatchTask<>(node, from, i + 1, leaf, combine)));
+                    from = i + 1;
+                    batchSize = 0;
+                    continue;
+                }
+                // smaller batches, interrupted by a large child or the last one, stay in this task
+                if (from < i) parts.add(new Part<>(from, i));
+                if (i < numberOfChildren && i != remaining)
+                    parts.add(
+                            Part.fork(
+                                    new FoldTask<>(node.getChild(i), leaf, combine, threshold), i));
+                from = i + 1;
+                batchSize = 0;
+            }
+            return new Split<>(remaining, parts);
+        }
+    }
+
+    /** Folds the children in a range of a node sequentially. */
+    private static class BatchTask<T extends Tree<T>, O> extends RecursiveTask<List<O>> {
+        private static final long serialVersionUID = 1L;
+
+        private final T node;
+        private final int from;
+        private final int to;
+        private final Function<? super T, ? extends O> leaf;
+        private final BiFunction<? super T, List<O>, ? extends O> combine;
+
+        BatchTask(
+                T node,
+                int from,
+                int to,
+                Function<? super T, ? extends O> leaf,
+                BiFunction<? super T, List<O>, ? extends O> combine) {
+            this.node = node;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.combine = combine;
+        }
+
+        @Override
+        protected List<O> compute() {
+            List<O> outputs = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) outputs.add(node.getChild(i).fold(leaf, combine));
+            return outputs;
+        }
+    }
+
+    /** The children of a node split into parts, except the one folded by the splitting task. */
+    private static class Split<T extends Tree<T>, O> {
+        /** The index of the child folded by the splitting task or -1 if there is none. */
+        private final int remaining;
+
+        private final List<Part<T, O>> parts;
+
+        private Split(int remaining, List<Part<T, O>> parts) {
+            this.remaining = remaining;
+            this.parts = parts;
+        }
+    }
+
+    /**
+     * A range of children of a node, which is either folded by a forked task, i.e. a large child by
+     * a {@link FoldTask} or small children by a {@link BatchTask}, or sequentially on demand.
+     */
+    private static class Part<T extends Tree<T>, O> {
+        private final int from;
+        private final int to;
+        private final FoldTask<T, O> subtree;
+        private final BatchTask<T, O> batch;
+
+        private Part(int from, int to) {
+            this(from, to, null, null);
+        }
+
+        private Part(int from, int to, FoldTask<T, O> subtree, BatchTask<T, O> batch) {
+            this.from = from;
+            this.to = to;
+            this.subtree = subtree;
+            this.batch = batch;
+        }
+
+        private static <T extends Tree<T>, O> Part<T, O> fork(FoldTask<T, O> subtree, int index) {
+            subtree.fork();
+            return new Part<>(index, index + 1, subtree, null);
+        }
+
+        private static <T extends Tree<T>, O> Part<T, O> fork(BatchTask<T, O> batch) {
+            batch.fork();
+            return new Part<>(batch.from, batch.to, null, batch);
+        }
+
+        /** Stores the outputs of the children of this part at their indices. */
+        private void collect(
+                T node,
+                List<O> childrenOutput,
+                Function<? super T, ? extends O> leaf,
+                BiFunction<? super T, List<O>, ? extends O> combine) {
+            if (subtree != null) {
+                childrenOutput.set(from, subtree.join());
+            } else if (batch != null) {
+                List<O> outputs = batch.join();
+                for (int i = from; i < to; i++) childrenOutput.set(i, outputs.get(i - from));
+            } else {
+                for (int i = from; i < to; i++)
+                    childrenOutput.set(i, node.getChild(i).fold(leaf, combine));
+            }
+        }
+    }
+}
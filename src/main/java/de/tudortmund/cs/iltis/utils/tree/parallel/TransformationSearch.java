@@ -0,0 +1,164 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import de.tudortmund.cs.iltis.utils.tree.StructuralHashes;
+import de.tudortmund.cs.iltis.utils.tree.StructuralHashes.Key;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import de.tudortmund.cs.iltis.utils.tree.pattern.TreePattern;
+import de.tudortmund.cs.iltis.utils.tree.transformations.IterativeTransformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches for a shortest sequence of rule applications transforming a tree into a tree matching a
+ * goal pattern.
+ *
+ * <p>The search is a breadth-first search, which expands all trees of one level in parallel on a
+ * fork-join pool. A successor of a tree is obtained by applying one of the rules at one of the
+ * paths it is applicable to, see {@link Tree#getAllApplications(Transformation)}. Trees already
+ * visited are recognized by their structural hash code and equality and are not expanded again. The
+ * hash codes are stored per node by {@link StructuralHashes}, so for a successor, which shares all
+ * but the rewritten path with its predecessor, only the new nodes are hashed. Hence, the rules and
+ * the goal pattern have to be thread-safe, and they must not alter the trees.
+ *
+ * @param <T> The type of trees to search on
+ */
+public class TransformationSearch<T extends Tree<T>> {
+
+    private final List<Transformation<T>> rules;
+    private final TreePattern<T> goal;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a search using the common fork-join pool.
+     *
+     * @param rules The transformations to apply.
+     * @param goal The pattern the final tree has to match.
+     */
+    public TransformationSearch(
+            Collection<? extends Transformation<T>> rules, TreePattern<T> goal) {
+        this(rules, goal, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a search using the specified fork-join pool.
+     *
+     * @param rules The transformations to apply.
+     * @param goal The pattern the final tree has to match.
+     * @param pool The pool to expand the trees in.
+     */
+    public TransformationSearch(
+            Collection<? extends Transformation<T>> rules, TreePattern<T> goal, ForkJoinPool pool) {
+        this.rules = new ArrayList<>(rules);
+        this.goal = goal;
+        this.pool = pool;
+    }
+
+    /**
+     * Searches for a shortest sequence of rule applications transforming the specified tree into a
+     * tree matching the goal pattern.
+     *
+     * @param start The tree to start from.
+     * @param maxLength The maximal number of rule applications.
+     * @return A shortest sequence of rule applications, each for the path it is applied at, or
+     *     nothing, if there is none of at most the maximal length.
+     * @throws IllegalArgumentException If maxLength is negative.
+     */
+    public Optional<IterativeTransformation<T>> findShortest(T start, int maxLength) {
+        if (maxLength < 0)
+            throw new IllegalArgumentException("Maximal length must not be negative: " + maxLength);
+
+        StructuralHashes<T> hashes = new StructuralHashes<>();
+        Set<Key<T>> visited = ConcurrentHashMap.newKeySet();
+        visited.add(hashes.keyOf(start));
+        List<Step<T>> level = Collections.singletonList(new Step<>(null, null, start));
+        for (int length = 0; ; length++) {
+            for (Step<T> step : level)
+                if (goal.matches(step.tree)) return Optional.of(toSequence(step));
+            if (length == maxLength || level.isEmpty()) return Optional.empty();
+            level = pool.invoke(new ExpandTask<>(level, 0, level.size(), rules, hashes, visited));
+        }
+    }
+
+    private IterativeTransformation<T> toSequence(Step<T> last) {
+        List<Transformation<T>> transformations = new ArrayList<>();
+        for (Step<T> step = last; step.previous != null; step = step.previous)
+            transformations.add(step.transformation);
+        Collections.reverse(transformations);
+        return new IterativeTransformation<>(new TreePath(), transformations);
+    }
+
+    /** A tree reached by applying a transformation to the tree of the previous step. */
+    private static class Step<T extends Tree<T>> {
+        private final Step<T> previous;
+        private final Transformation<T> transformation;
+        private final T tree;
+
+        Step(Step<T> previous, Transformation<T> transformation, T tree) {
+            this.previous = previous;
+            this.transformation = transformation;
+            this.tree = tree;
+        }
+    }
+
+    /** Calculates the unvisited successors of a range of steps in the order of the steps. */
+    private static class ExpandTask<T extends Tree<T>> extends RecursiveTask<List<Step<T>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Step<T>> steps;
+        private final int from;
+        private final int to;
+        private final List<Transformation<T>> rules;
+        private final StructuralHashes<T> hashes;
+        private final Set<Key<T>> visited;
+
+        ExpandTask(
+                List<Step<T>> steps,
+                int from,
+                int to,
+                List<Transformation<T>> rules,
+                StructuralHashes<T> hashes,
+                Set<Key<T>> visited) {
+            this.steps = steps;
+            this.from = from;
+            this.to = to;
+            this.rules = rules;
+            this.hashes = hashes;
+            this.visited = visited;
+        }
+
+        @Override
+        protected List<Step<T>> compute() {
+            if (to - from == 1) return expand(steps.get(from));
+
+            int middle = (from + to) >>> 1;
+            ExpandTask<T> right = new ExpandTask<>(steps, middle, to, rules, hashes, visited);
+            right.fork();
+            List<Step<T>> successors =
+                    new ExpandTask<>(steps, from, middle, rules, hashes, visited).compute();
+            successors.addAll(right.join());
+            return successors;
+        }
+
+        private List<Step<T>> expand(Step<T> step) {
+            List<Step<T>> successors = new ArrayList<>();
+            for (Transformation<T> rule : rules) {
+                for (TreePath path : step.tree.getAllApplications(rule)) {
+                    Transformation<T> transformation = rule.forPath(path);
+                    T successor = transformation.apply(step.tree);
+                    if (visited.add(hashes.keyOf(successor)))
+                        successors.add(new Step<>(step, transformation, successor));
+                }
+            }
+            return successors;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import de.tudortmund.cs.iltis.utils.collections.Either;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.transformations.MemoizingTransformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.TransformationUnapplicable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk application of a transformation to many trees in parallel.
+ *
+ * <p>Every tree is transformed in a task of its own on a given executor, e.g. a {@link
+ * ForkJoinPool} or an executor starting a virtual thread per task. Hence, the transformation has to
+ * be thread-safe. Failures of single trees, e.g. a {@link TransformationUnapplicable}, do not
+ * affect the other trees.
+ */
+public class Transformations {
+
+    /**
+     * Applies the transformation to all trees in parallel using the common fork-join pool.
+     *
+     * @see #applyAll(Transformation, Collection, Executor)
+     */
+    public static <T extends Tree<T>> List<Either<T, RuntimeException>> applyAll(
+            Transformation<T> transformation, Collection<? extends T> trees) {
+        return applyAll(transformation, trees, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Applies the transformation to all trees in parallel.
+     *
+     * @param transformation The transformation to apply.
+     * @param trees The trees to transform.
+     * @param executor The executor to run the transformations on.
+     * @return For every tree in the order of the collection, either the transformed tree or the
+     *     exception thrown by the transformation.
+     */
+    public static <T extends Tree<T>> List<Either<T, RuntimeException>> applyAll(
+            Transformation<T> transformation, Collection<? extends T> trees, Executor executor) {
+        List<CompletableFuture<Either<T, RuntimeException>>> results =
+                new ArrayList<>(trees.size());
+        for (T tree : trees)
+            results.add(CompletableFuture.supplyAsync(() -> apply(transformation, tree), executor));
+
+        List<Either<T, RuntimeException>> transformedTrees = new ArrayList<>(trees.size());
+        for (CompletableFuture<Either<T, RuntimeException>> result : results)
+            transformedTrees.add(result.join());
+        return transformedTrees;
+    }
+
+    /**
+     * Applies the transformation to all trees in parallel and caches the results, so equal trees,
+     * e.g. duplicate submissions, are transformed only once, see {@link MemoizingTransformation}.
+     *
+     * @param transformation The local transformation to apply.
+     * @param trees The trees to transform.
+     * @param executor The executor to run the transformations on.
+     * @param cacheCapacity The maximal number of cached results shared by all trees.
+     * @return For every tree in the order of the collection, either the transformed tree or the
+     *     exception thrown by the transformation.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public static <T extends Tree<T>> List<Either<T, RuntimeException>> applyAll(
+            Transformation<T> transformation,
+            Collection<? extends T> trees,
+            Executor executor,
+            int cacheCapacity) {
+        return applyAll(
+                new MemoizingTransformation<>(transformation, cacheCapacity), trees, executor);
+    }
+
+    private static <T extends Tree<T>> Either<T, RuntimeException> apply(
+            Transformation<T> transformation, T tree) {
+        try {
+            return Either.left(transformation.apply(tree));
+        } catch (RuntimeException e) {
+            return Either.right(e);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.MatchIterator;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
+import de.tudortmund.cs.iltis.utils.tree.pattern.match.SingleMatchIterator;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -32,7 +33,7 @@ public class ChildrenPattern<MatchedT extends Tree<MatchedT>> extends TreePatter
         @Override
         protected boolean initMatching() {
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
-            forestMatchIterator = getChild(0).matchIterator(match, getTree().getChildren());
+            forestMatchIterator = getChild(0).matchIterator(match, getTree().childrenView());
             return true;
         }
 
@@ -43,6 +44,14 @@ public class ChildrenPattern<MatchedT extends Tree<MatchedT>> extends TreePatter
             return null;
         }
 
+        @Override
+        protected boolean mayProduceDuplicates() {
+            // distinct matches of the subpattern are passed on unchanged if this pattern is unnamed
+            return isNamed()
+                    || !(forestMatchIterator instanceof QueueMatchIterator
+                            || forestMatchIterator instanceof SingleMatchIterator);
+        }
+
         /** for GWT serialization */
         @SuppressWarnings("unused")
         private ChildrenPatternMatchIterator() {}
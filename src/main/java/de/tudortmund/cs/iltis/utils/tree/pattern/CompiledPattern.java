@@ -0,0 +1,392 @@
+package de.tudortmund.cs.iltis.utils.tree.pattern;
+
+import de.tudortmund.cs.iltis.utils.function.SerializablePredicate;
+import de.tudortmund.cs.iltis.utils.term.pattern.ExactNamePattern;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tree pattern compiled into a program that decides whether the pattern matches, without building
+ * any match objects.
+ *
+ * <p>Matching with {@link TreePattern#matchIterator(List)} creates an iterator per subpattern and
+ * enumerates every partition of a forest for {@link FlexibleArityForestPattern}s, which takes
+ * exponential time in the worst case. If a pattern does not contain any named subpattern, none of
+ * this is necessary to decide whether it matches: every match is the empty match, so only the
+ * existence of a match is of interest. This class translates such a pattern once into a tree of
+ * instructions which operate on index ranges of the given forest. Forest patterns with flexible
+ * arity are decided by dynamic programming over (subpattern, forest position), which needs
+ * polynomial time.
+ *
+ * <p>Patterns of unknown type are not compiled, since they may add definitions to a match without
+ * being named (e.g. {@link de.tudortmund.cs.iltis.utils.term.pattern.AnyNamePattern} defines the
+ * name of the matched term). Subclasses of the patterns in this package that change the matching
+ * semantics therefore have to return their own {@link PatternType}.
+ *
+ * @param <MatchedT> the type of tree to be matched
+ */
+final class CompiledPattern<MatchedT extends Tree<MatchedT>> {
+
+    private final Instruction<MatchedT> program;
+
+    private CompiledPattern(Instruction<MatchedT> program) {
+        this.program = program;
+    }
+
+    /**
+     * Compiles the given pattern.
+     *
+     * @param pattern the pattern to compile
+     * @return the compiled pattern, or null if the pattern cannot be compiled, e.g. since it
+     *     contains named subpatterns
+     */
+    static <MatchedT extends Tree<MatchedT>> CompiledPattern<MatchedT> compile(
+            TreePattern<MatchedT> pattern) {
+        Instruction<MatchedT> program = compileInstruction(pattern);
+        return program == null ? null : new CompiledPattern<>(program);
+    }
+
+    /**
+     * Checks whether the compiled pattern matches the given forest.
+     *
+     * @param forest the forest to be matched
+     * @return true iff the pattern matches
+     */
+    boolean matches(List<MatchedT> forest) {
+        return program.matches(forest, 0, forest.size(), new Memo());
+    }
+
+    /**
+     * Checks whether the compiled pattern matches the trees {@code forest[from..to)}, reusing and
+     * extending the results in the given memo table.
+     *
+     * @param forest the forest containing the trees to be matched
+     * @param from the index of the first tree to be matched
+     * @param to the index after the last tree to be matched
+     * @param memo the memo table, which must only be used while the forest is not modified
+     * @return true iff the pattern matches
+     */
+    boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+        Key key = new Key(program, forest, from, to);
+        Boolean result = memo.results.get(key);
+        if (result == null) {
+            result = program.matches(forest, from, to, memo);
+            memo.results.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * A table that memoises whether compiled (sub-)patterns match given trees or forest ranges.
+     *
+     * <p>Since compiled patterns are variable-free, these results do not depend on the partial
+     * match built so far. Hence, a single table can be shared while a pattern is matched against a
+     * fixed forest, no matter how often a subpattern is retried with different partial matches.
+     * Trees and forests are identified by identity, so the table must be discarded as soon as the
+     * matching is done.
+     */
+    static final class Memo {
+        private final Map<Key, Boolean> results = new HashMap<>();
+    }
+
+    /** Identifies a (sub-)pattern applied to the range {@code [from, to)} of a tree or forest. */
+    private static final class Key {
+        private final Object pattern;
+        private final Object base;
+        private final int from;
+        private final int to;
+
+        private Key(Object pattern, Object base, int from, int to) {
+            this.pattern = pattern;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return pattern == other.pattern
+                    && base == other.base
+                    && from == other.from
+                    && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(pattern);
+            result = 31 * result + System.identityHashCode(base);
+            result = 31 * result + from;
+            return 31 * result + to;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // COMPILATION
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static <MatchedT extends Tree<MatchedT>> Instruction<MatchedT> compileInstruction(
+            TreePattern<MatchedT> pattern) {
+        if (pattern.isNamed()) return null;
+
+        List<Instruction<MatchedT>> children = new ArrayList<>(pattern.getNumberOfChildren());
+        for (TreePattern<MatchedT> subpattern : pattern.childrenView()) {
+            Instruction<MatchedT> child = compileInstruction(subpattern);
+            if (child == null) return null;
+            children.add(child);
+        }
+
+        if (pattern instanceof ExactNamePattern) {
+            return new PredicateInstruction<>(((PredicatePattern<MatchedT>) pattern).predicate);
+        }
+        // patterns of unknown type may define names, so only their match iterators are exact
+        if (!(pattern.getType() instanceof TreePatternType)) return null;
+
+        switch ((TreePatternType) pattern.getType()) {
+            case PredicatePattern:
+            case EqualsPattern:
+            case AnyPattern:
+                return new PredicateInstruction<>(((PredicatePattern<MatchedT>) pattern).predicate);
+            case AlternativePattern:
+                return new AlternativeInstruction<>(children);
+            case ComplementPattern:
+                return new ComplementInstruction<>(children.get(0));
+            case MultiConstraintPattern:
+                // the match iterator of a multi-constraint pattern without subpatterns fails
+                if (children.isEmpty()) return null;
+                return new ConjunctionInstruction<>(children);
+            case ChildrenPattern:
+                return new ChildrenInstruction<>(children.get(0));
+            case ContainsDescendantPattern:
+                return new ContainsDescendantInstruction<>(children.get(0));
+            case RepeatForestPattern:
+                return new RepeatInstruction<>(children.get(0));
+            case FixedArityForestPattern:
+                return new FixedArityInstruction<>(children);
+            case FlexibleArityForestPattern:
+                return new FlexibleArityInstruction<>(pattern, children);
+            default:
+                return null;
+        }
+    }
+
+    private static <MatchedT> List<MatchedT> range(List<MatchedT> forest, int from, int to) {
+        if (from == 0 && to == forest.size()) return forest;
+        return forest.subList(from, to);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // INSTRUCTIONS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /** Decides whether a (sub-)pattern matches the trees {@code forest[from..to)}. */
+    private abstract static class Instruction<MatchedT extends Tree<MatchedT>> {
+        abstract boolean matches(List<MatchedT> forest, int from, int to, Memo memo);
+
+        /** Decides whether the (sub-)pattern matches the given tree, using the memo table. */
+        final boolean matchesTree(MatchedT tree, Memo memo) {
+            Key key = new Key(this, tree, 0, 1);
+            Boolean result = memo.results.get(key);
+            if (result == null) {
+                result = matches(Collections.singletonList(tree), 0, 1, memo);
+                memo.results.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    private static class PredicateInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final SerializablePredicate<List<MatchedT>> predicate;
+
+        PredicateInstruction(SerializablePredicate<List<MatchedT>> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            return predicate.test(range(forest, from, to));
+        }
+    }
+
+    /** Matches iff one of the alternatives matches. */
+    private static class AlternativeInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final List<Instruction<MatchedT>> alternatives;
+
+        AlternativeInstruction(List<Instruction<MatchedT>> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            for (Instruction<MatchedT> alternative : alternatives)
+                if (alternative.matches(forest, from, to, memo)) return true;
+            return false;
+        }
+    }
+
+    private static class ComplementInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final Instruction<MatchedT> complemented;
+
+        ComplementInstruction(Instruction<MatchedT> complemented) {
+            this.complemented = complemented;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            return !complemented.matches(forest, from, to, memo);
+        }
+    }
+
+    private static class ConjunctionInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final List<Instruction<MatchedT>> constraints;
+
+        ConjunctionInstruction(List<Instruction<MatchedT>> constraints) {
+            this.constraints = constraints;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            for (Instruction<MatchedT> constraint : constraints)
+                if (!constraint.matches(forest, from, to, memo)) return false;
+            return true;
+        }
+    }
+
+    private static class ChildrenInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final Instruction<MatchedT> childrenInstruction;
+
+        ChildrenInstruction(Instruction<MatchedT> childrenInstruction) {
+            this.childrenInstruction = childrenInstruction;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            if (to - from != 1) return false;
+            MatchedT tree = forest.get(from);
+            Key key = new Key(this, tree, 0, 1);
+            Boolean result = memo.results.get(key);
+            if (result == null) {
+                List<MatchedT> children = tree.childrenView();
+                result = childrenInstruction.matches(children, 0, children.size(), memo);
+                memo.results.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    private static class ContainsDescendantInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final Instruction<MatchedT> descendantInstruction;
+
+        ContainsDescendantInstruction(Instruction<MatchedT> descendantInstruction) {
+            this.descendantInstruction = descendantInstruction;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            for (int i = from; i < to; i++) {
+                Iterator<MatchedT> descendants = forest.get(i).preorderDescendantIterator();
+                while (descendants.hasNext())
+                    if (descendantInstruction.matchesTree(descendants.next(), memo)) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class RepeatInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final Instruction<MatchedT> repeated;
+
+        RepeatInstruction(Instruction<MatchedT> repeated) {
+            this.repeated = repeated;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            for (int i = from; i < to; i++)
+                if (!repeated.matches(forest, i, i + 1, memo)) return false;
+            return true;
+        }
+    }
+
+    private static class FixedArityInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final List<Instruction<MatchedT>> parts;
+
+        FixedArityInstruction(List<Instruction<MatchedT>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            if (to - from != parts.size()) return false;
+            for (int i = 0; i < parts.size(); i++)
+                if (!parts.get(i).matches(forest, from + i, from + i + 1, memo)) return false;
+            return true;
+        }
+    }
+
+    /**
+     * Decides whether the forest can be split into consecutive, possibly empty parts such that the
+     * i-th part is matched by the i-th subpattern. After processing k subpatterns, {@code
+     * reachable[j]} states whether the first j trees can be split among these k subpatterns.
+     */
+    private static class FlexibleArityInstruction<MatchedT extends Tree<MatchedT>>
+            extends Instruction<MatchedT> {
+        private final List<Instruction<MatchedT>> parts;
+        private final int[] minWidths;
+        private final int[] maxWidths;
+
+        FlexibleArityInstruction(TreePattern<MatchedT> pattern, List<Instruction<MatchedT>> parts) {
+            this.parts = parts;
+            this.minWidths = new int[parts.size()];
+            this.maxWidths = new int[parts.size()];
+            for (int i = 0; i < parts.size(); i++) {
+                minWidths[i] = pattern.getChild(i).getMinForestWidth();
+                maxWidths[i] = pattern.getChild(i).getMaxForestWidth();
+            }
+        }
+
+        @Override
+        boolean matches(List<MatchedT> forest, int from, int to, Memo memo) {
+            // like SequencePartitionIterator, zero parts match any forest by the empty partition
+            if (parts.isEmpty()) return true;
+
+            int size = to - from;
+            boolean[] reachable = new boolean[size + 1];
+            boolean[] next = new boolean[size + 1];
+            reachable[0] = true;
+            for (int i = 0; i < parts.size(); i++) {
+                Instruction<MatchedT> part = parts.get(i);
+                boolean any = false;
+                for (int end = 0; end <= size; end++) {
+                    next[end] = false;
+                    // only parts whose width lies within the bounds of the subpattern
+                    int firstStart = maxWidths[i] >= end ? 0 : end - maxWidths[i];
+                    int lastStart = end - minWidths[i];
+                    for (int start = firstStart; start <= lastStart && !next[end]; start++)
+                        next[end] =
+                                reachable[start]
+                                        && part.matches(forest, from + start, from + end, memo);
+                    any |= next[end];
+                }
+                if (!any) return false;
+                boolean[] swap = reachable;
+                reachable = next;
+                next = swap;
+            }
+            return reachable[size];
+        }
+    }
+}
@@ -6,16 +6,19 @@ import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 
 /**
  * Matches if any descendant of one of the trees of the forest to be matched matches the given child
  * pattern.
  *
+ * <p>The descendants are searched lazily in preorder, skipping the descendants which are ruled out
+ * by the static analysis of the child pattern (e.g. by their root name), so finding the first match
+ * only visits the descendants up to the first hit.
+ *
  * @param <MatchedT> the type of tree to be matched
  * @see TreePattern
  */
@@ -24,6 +27,7 @@ public class ContainsDescendantPattern<MatchedT extends Tree<MatchedT>>
 
     public class ContainsDescendantPatternMatchIterator extends QueueMatchIterator<MatchedT> {
 
+        private int treeIndex;
         private Iterator<MatchedT> descendantIterator;
         private Iterator<Match<MatchedT>> matchIterator;
 
@@ -35,23 +39,27 @@ public class ContainsDescendantPattern<MatchedT extends Tree<MatchedT>>
         @Override
         protected boolean initMatching() {
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
-            Set<MatchedT> descendants =
-                    forest.stream()
-                            .flatMap(tree -> tree.getDescendants().stream())
-                            .collect(Collectors.toSet());
-            descendantIterator = descendants.iterator();
+            treeIndex = 0;
+            descendantIterator = null;
             return true;
         }
 
         @Override
         protected Match<MatchedT> calculateNextMatch() {
+            CompiledPattern<MatchedT> compiled = getChild(0).compiled();
             while (true) {
                 if (matchIterator == null) {
-                    if (descendantIterator.hasNext()) {
-                        matchIterator = getChild(0).matchIterator(match, descendantIterator.next());
-                    } else {
-                        return null;
+                    MatchedT descendant = nextCandidate();
+                    if (descendant == null) return null;
+                    if (compiled != null) {
+                        // a variable-free subpattern only yields the given match, so the first
+                        // matching descendant yields the only match of this pattern
+                        if (!compiled.matches(Collections.singletonList(descendant))) continue;
+                        treeIndex = forest.size();
+                        descendantIterator = null;
+                        return withThisPatternsDefinition(match, forest);
                     }
+                    matchIterator = getChild(0).matchIterator(match, descendant);
                 }
                 if (!matchIterator.hasNext()) {
                     matchIterator = null;
@@ -61,6 +69,24 @@ public class ContainsDescendantPattern<MatchedT extends Tree<MatchedT>>
             }
         }
 
+        /**
+         * Returns the next descendant of the trees of the forest in preorder which is admitted by
+         * the analysis of the subpattern (see {@link TreePattern#getAnalysis()}), or null if there
+         * are none left. The descendants are visited lazily, so the search stops at the first match
+         * if only one match is requested.
+         */
+        private MatchedT nextCandidate() {
+            PatternAnalysis analysis = getChild(0).getAnalysis();
+            while (true) {
+                while (descendantIterator == null || !descendantIterator.hasNext()) {
+                    if (treeIndex >= forest.size()) return null;
+                    descendantIterator = forest.get(treeIndex++).preorderDescendantIterator();
+                }
+                MatchedT descendant = descendantIterator.next();
+                if (analysis.admits(descendant)) return descendant;
+            }
+        }
+
         /** for GWT serialization */
         @SuppressWarnings("unused")
         private ContainsDescendantPatternMatchIterator() {}
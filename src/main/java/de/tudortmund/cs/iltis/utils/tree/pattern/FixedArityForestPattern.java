@@ -8,6 +8,7 @@ import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.MatchIterator;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import javax.validation.constraints.NotNull;
@@ -35,11 +36,22 @@ public class FixedArityForestPattern<MatchedT extends Tree<MatchedT>>
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
             if (getNumberOfChildren() != forest.size()) return false;
 
-            List<Iterator<Match<MatchedT>>> matchIterators = new ArrayList<>(getNumberOfChildren());
+            // decide variable-free subpatterns first, they do not contribute to the conjunction
+            CompiledPattern.Memo memo = new CompiledPattern.Memo();
+            List<Integer> namedChildren = new ArrayList<>(getNumberOfChildren());
             for (int i = 0; i < getNumberOfChildren(); i++) {
+                Iterator<Match<MatchedT>> compiledIt =
+                        compiledMatchIterator(getChild(i), match, forest, i, i + 1, memo);
+                if (compiledIt == null) namedChildren.add(i);
+                else if (!compiledIt.hasNext()) return false;
+            }
+
+            List<Iterator<Match<MatchedT>>> matchIterators = new ArrayList<>(namedChildren.size());
+            for (int i : namedChildren) {
                 matchIterators.add(getChild(i).matchIterator(match, forest.get(i)));
             }
-            conjIt = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
+            if (matchIterators.isEmpty()) conjIt = Collections.singletonList(match).iterator();
+            else conjIt = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
             return true;
         }
 
@@ -1,6 +1,7 @@
 package de.tudortmund.cs.iltis.utils.tree.pattern;
 
 import de.tudortmund.cs.iltis.utils.IndexedSymbol;
+import de.tudortmund.cs.iltis.utils.collections.EmptyIterator;
 import de.tudortmund.cs.iltis.utils.collections.SequencePartitionIterator;
 import de.tudortmund.cs.iltis.utils.function.SerializableBiFunction;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
@@ -8,6 +9,7 @@ import de.tudortmund.cs.iltis.utils.tree.pattern.match.ConjunctionTreeMatchItera
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import javax.validation.constraints.NotNull;
@@ -17,7 +19,9 @@ import javax.validation.constraints.NotNull;
  *
  * <p>Tries to find an n-partition of the forest, so that the i-th of the n subpatterns matches the
  * i-th part of the partition. The n-partitions are created by the {@link
- * SequencePartitionIterator}.
+ * SequencePartitionIterator}. Only partitions whose parts respect the forest widths of the
+ * subpatterns (see {@link TreePattern#getMinForestWidth()}) are generated, e.g. a part for a
+ * subpattern of fixed arity always has the respective size.
  *
  * @param <MatchedT> the type of tree to be matched
  * @see TreePattern
@@ -30,6 +34,9 @@ public class FlexibleArityForestPattern<MatchedT extends Tree<MatchedT>>
         private Iterator<List<List<MatchedT>>> seqParIt;
         private Iterator<Match<MatchedT>> conjIt;
 
+        /** Results of variable-free subpatterns on ranges of the forest, for all partitions. */
+        private transient CompiledPattern.Memo memo;
+
         public FlexibleArityForestPatternMatchIterator(
                 @NotNull final Match<MatchedT> match, @NotNull final List<MatchedT> forest) {
             super(match, forest);
@@ -39,7 +46,14 @@ public class FlexibleArityForestPattern<MatchedT extends Tree<MatchedT>>
         protected boolean initMatching() {
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
             conjIt = null;
-            seqParIt = new SequencePartitionIterator<>(forest, getNumberOfChildren());
+            memo = new CompiledPattern.Memo();
+            int[] minWidths = new int[getNumberOfChildren()];
+            int[] maxWidths = new int[getNumberOfChildren()];
+            for (int i = 0; i < getNumberOfChildren(); i++) {
+                minWidths[i] = getChild(i).getMinForestWidth();
+                maxWidths[i] = getChild(i).getMaxForestWidth();
+            }
+            seqParIt = new SequencePartitionIterator<>(forest, minWidths, maxWidths);
             return true;
         }
 
@@ -52,17 +66,40 @@ public class FlexibleArityForestPattern<MatchedT extends Tree<MatchedT>>
                 }
 
                 List<List<MatchedT>> forestPartition = seqParIt.next();
-                List<Iterator<Match<MatchedT>>> matchIterators =
-                        new ArrayList<>(getNumberOfChildren());
-                for (int i = 0; i < getNumberOfChildren(); i++) {
-                    matchIterators.add(getChild(i).matchIterator(match, forestPartition.get(i)));
-                }
-                conjIt = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
+                conjIt = partitionMatchIterator(forestPartition);
             }
 
             return null;
         }
 
+        /**
+         * Returns an iterator over the matches of the subpatterns on the parts of the given
+         * partition. Variable-free subpatterns are decided first using the memo table, so that
+         * partitions which they rule out are skipped without matching any other subpattern.
+         */
+        private Iterator<Match<MatchedT>> partitionMatchIterator(
+                List<List<MatchedT>> forestPartition) {
+            List<Integer> namedChildren = new ArrayList<>(getNumberOfChildren());
+            int from = 0;
+            for (int i = 0; i < getNumberOfChildren(); i++) {
+                int to = from + forestPartition.get(i).size();
+                Iterator<Match<MatchedT>> compiledIt =
+                        compiledMatchIterator(getChild(i), match, forest, from, to, memo);
+                if (compiledIt == null) namedChildren.add(i);
+                else if (!compiledIt.hasNext()) return new EmptyIterator<>();
+                from = to;
+            }
+
+            if (namedChildren.isEmpty()) return Collections.singletonList(match).iterator();
+            List<Iterator<Match<MatchedT>>> matchIterators = new ArrayList<>(namedChildren.size());
+            for (int i : namedChildren) {
+                // the parts are views, which must not end up in (serializable) matches
+                List<MatchedT> part = new ArrayList<>(forestPartition.get(i));
+                matchIterators.add(getChild(i).matchIterator(match, part));
+            }
+            return ConjunctionTreeMatchIterator.fromIterators(matchIterators);
+        }
+
         /** for GWT serialization */
         @SuppressWarnings("unused")
         private FlexibleArityForestPatternMatchIterator() {}
@@ -7,6 +7,8 @@ import de.tudortmund.cs.iltis.utils.tree.pattern.match.ConjunctionTreeMatchItera
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.MatchIterator;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,11 +37,22 @@ public class MultiConstraintPattern<MatchedT extends Tree<MatchedT>> extends Tre
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
             if (isLeaf()) return true;
 
+            // decide variable-free subpatterns first, they do not contribute to the conjunction
+            CompiledPattern.Memo memo = new CompiledPattern.Memo();
+            List<TreePattern<MatchedT>> namedChildren = new ArrayList<>(children.size());
+            for (TreePattern<MatchedT> childPattern : children) {
+                Iterator<Match<MatchedT>> compiledIt =
+                        compiledMatchIterator(childPattern, match, forest, 0, forest.size(), memo);
+                if (compiledIt == null) namedChildren.add(childPattern);
+                else if (!compiledIt.hasNext()) return false;
+            }
+
             List<Iterator<Match<MatchedT>>> matchIterators =
-                    children.stream()
+                    namedChildren.stream()
                             .map(childPattern -> childPattern.matchIterator(match, forest))
                             .collect(Collectors.toList());
-            conjIt = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
+            if (matchIterators.isEmpty()) conjIt = Collections.singletonList(match).iterator();
+            else conjIt = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
             return true;
         }
 
@@ -0,0 +1,437 @@
+package de.tudortmund.cs.iltis.utils.tree.pattern;
+
+import de.tudortmund.cs.iltis.utils.term.Term;
+import de.tudortmund.cs.iltis.utils.term.pattern.AnyNamePattern;
+import de.tudortmund.cs.iltis.utils.term.pattern.ExactNamePattern;
+import de.tudortmund.cs.iltis.utils.term.pattern.NamePattern;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.*;
+
+/**
+ * Static properties of the forests matched by a tree pattern, see {@link
+ * TreePattern#getAnalysis()}.
+ *
+ * <p>The analysis derives necessary conditions for a forest to be matched from the structure of the
+ * pattern:
+ *
+ * <ul>
+ *   <li>the bounds for the number of trees in the forest, e.g. a {@link FixedArityForestPattern}
+ *       with n subpatterns only matches forests of n trees;
+ *   <li>for a forest consisting of a single tree, the names its root may have (from {@link
+ *       NamePattern}s), the bounds for its number of children and the properties of the children
+ *       (from {@link ChildrenPattern}s);
+ *   <li>the minimal height of the highest tree of the forest, where leaves have height 0;
+ *   <li>the names which occur in every matched forest.
+ * </ul>
+ *
+ * Conditions are combined along {@link MultiConstraintPattern}s (conjunction) and {@link
+ * AlternativePattern}s (disjunction); all other patterns are assumed to match any forest. The
+ * analysis over-approximates the set of matched forests, so {@link #admits(List)} never rejects a
+ * forest which is matched by the pattern.
+ *
+ * <p>Checking the width, the root names and the arities only takes time proportional to the size of
+ * the pattern, independent of the size of the forest. The height and the occurring names of a
+ * forest are not checked by {@link #admits(List)}, since computing them needs to traverse the
+ * forest; they can be used by indexes over many patterns which compute these properties once per
+ * forest.
+ *
+ * <p>Names are only known for trees which are {@link Term}s; for other trees no name is required.
+ */
+public final class PatternAnalysis {
+
+    /** The analysis of patterns which may match any forest. */
+    private static final PatternAnalysis ANY =
+            new PatternAnalysis(
+                    0,
+                    Integer.MAX_VALUE,
+                    null,
+                    null,
+                    0,
+                    Integer.MAX_VALUE,
+                    null,
+                    0,
+                    Collections.emptySet());
+
+    /** The analysis of patterns which do not match any forest. */
+    private static final PatternAnalysis NONE =
+            new PatternAnalysis(
+                    Integer.MAX_VALUE, 0, null, Collections.emptySet(), 0, -1, null, 0, null);
+
+    private final int minForestWidth;
+    private final int maxForestWidth;
+
+    /** The analyses of the trees of the forest one by one, or null if unknown. */
+    private final List<PatternAnalysis> trees;
+
+    private final Set<Object> rootNames;
+    private final int minArity;
+    private final int maxArity;
+
+    /** The analyses of the children of a single tree one by one, or null if unknown. */
+    private final List<PatternAnalysis> children;
+
+    private final int minDepth;
+
+    /** The required names, or null (representing all names) if the pattern is unsatisfiable. */
+    private final Set<Object> requiredSymbols;
+
+    private PatternAnalysis(
+            int minForestWidth,
+            int maxForestWidth,
+            List<PatternAnalysis> trees,
+            Set<Object> rootNames,
+            int minArity,
+            int maxArity,
+            List<PatternAnalysis> children,
+            int minDepth,
+            Set<Object> requiredSymbols) {
+        this.minForestWidth = minForestWidth;
+        this.maxForestWidth = maxForestWidth;
+        this.trees = trees;
+        this.rootNames = rootNames;
+        this.minArity = minArity;
+        this.maxArity = maxArity;
+        this.children = children;
+        this.minDepth = minDepth;
+        this.requiredSymbols = requiredSymbols;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // ANALYSIS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Analyses the given pattern, using the (cached) analyses of its subpatterns.
+     *
+     * @param pattern the pattern to analyse
+     * @return the analysis
+     */
+    static PatternAnalysis of(TreePattern<?> pattern) {
+        if (pattern instanceof ExactNamePattern) {
+            Set<Object> name =
+                    Collections.singleton(((ExactNamePattern<?, ?>) pattern).getNameToMatch());
+            return new PatternAnalysis(1, 1, null, name, 0, Integer.MAX_VALUE, null, 0, name);
+        }
+        if (pattern instanceof AnyNamePattern)
+            return new PatternAnalysis(
+                    1, 1, null, null, 0, Integer.MAX_VALUE, null, 0, Collections.emptySet());
+        if (!(pattern.getType() instanceof TreePatternType)) return ANY;
+
+        List<PatternAnalysis> subanalyses = new ArrayList<>(pattern.getNumberOfChildren());
+        for (TreePattern<?> subpattern : pattern.childrenView())
+            subanalyses.add(subpattern.getAnalysis());
+
+        switch ((TreePatternType) pattern.getType()) {
+            case MultiConstraintPattern:
+                PatternAnalysis meet = ANY;
+                for (PatternAnalysis subanalysis : subanalyses) meet = meet.meet(subanalysis);
+                return meet;
+            case AlternativePattern:
+                PatternAnalysis join = NONE;
+                for (PatternAnalysis subanalysis : subanalyses) join = join.join(subanalysis);
+                return join;
+            case ChildrenPattern:
+                return ofChildren(subanalyses.get(0));
+            case ContainsDescendantPattern:
+                PatternAnalysis descendant = subanalyses.get(0);
+                if (descendant.isUnsatisfiable()) return NONE;
+                return new PatternAnalysis(
+                        1,
+                        Integer.MAX_VALUE,
+                        null,
+                        null,
+                        0,
+                        Integer.MAX_VALUE,
+                        null,
+                        descendant.minDepth,
+                        descendant.requiredSymbols);
+            case FixedArityForestPattern:
+                return ofSequence(subanalyses, true);
+            case FlexibleArityForestPattern:
+                // without subpatterns, any forest is matched by the empty partition
+                if (subanalyses.isEmpty()) return ANY;
+                return ofSequence(subanalyses, false);
+            default:
+                return ANY;
+        }
+    }
+
+    /** Analyses a single tree whose children forest is described by the given analysis. */
+    private static PatternAnalysis ofChildren(PatternAnalysis forest) {
+        if (forest.isUnsatisfiable()) return NONE;
+        int depth = forest.minForestWidth >= 1 ? saturatedAdd(forest.minDepth, 1) : 0;
+        return new PatternAnalysis(
+                1,
+                1,
+                null,
+                null,
+                forest.minForestWidth,
+                forest.maxForestWidth,
+                forest.treeAnalyses(),
+                depth,
+                forest.requiredSymbols);
+    }
+
+    /**
+     * Analyses a forest which is split into consecutive parts described by the given analyses. If
+     * {@code fixed}, each part consists of exactly one tree.
+     */
+    private static PatternAnalysis ofSequence(List<PatternAnalysis> parts, boolean fixed) {
+        int minWidth = fixed ? parts.size() : 0;
+        int maxWidth = fixed ? parts.size() : 0;
+        List<PatternAnalysis> trees = fixed ? parts : new ArrayList<>();
+        int depth = 0;
+        Set<Object> symbols = new HashSet<>();
+        for (PatternAnalysis part : parts) {
+            if (part.isUnsatisfiable()) return NONE;
+            if (fixed && (part.minForestWidth > 1 || part.maxForestWidth < 1)) return NONE;
+            if (!fixed) {
+                minWidth = saturatedAdd(minWidth, part.minForestWidth);
+                maxWidth = saturatedAdd(maxWidth, part.maxForestWidth);
+                List<PatternAnalysis> partTrees = part.treeAnalyses();
+                if (trees != null && partTrees != null) trees.addAll(partTrees);
+                else trees = null;
+            }
+            depth = Math.max(depth, part.minDepth);
+            symbols.addAll(part.requiredSymbols);
+        }
+
+        // a single part determines the properties of a single tree
+        if (fixed && parts.size() == 1) {
+            PatternAnalysis tree = parts.get(0);
+            return new PatternAnalysis(
+                    1,
+                    1,
+                    tree.trees,
+                    tree.rootNames,
+                    tree.minArity,
+                    tree.maxArity,
+                    tree.children,
+                    depth,
+                    symbols);
+        }
+        return new PatternAnalysis(
+                minWidth, maxWidth, trees, null, 0, Integer.MAX_VALUE, null, depth, symbols);
+    }
+
+    /** Returns the analyses of the trees of the forest one by one, or null if unknown. */
+    private List<PatternAnalysis> treeAnalyses() {
+        if (trees != null) return trees;
+        if (minForestWidth == 1 && maxForestWidth == 1) return Collections.singletonList(this);
+        return null;
+    }
+
+    /** Combines two analyses of patterns which both have to match. */
+    private PatternAnalysis meet(PatternAnalysis other) {
+        Set<Object> names = rootNames;
+        if (names == null) names = other.rootNames;
+        else if (other.rootNames != null) {
+            names = new HashSet<>(rootNames);
+            names.retainAll(other.rootNames);
+        }
+
+        Set<Object> symbols = requiredSymbols;
+        if (symbols == null || other.requiredSymbols == null) symbols = null;
+        else if (!other.requiredSymbols.isEmpty()) {
+            symbols = new HashSet<>(requiredSymbols);
+            symbols.addAll(other.requiredSymbols);
+        }
+
+        return new PatternAnalysis(
+                Math.max(minForestWidth, other.minForestWidth),
+                Math.min(maxForestWidth, other.maxForestWidth),
+                meetAll(trees, other.trees),
+                names,
+                Math.max(minArity, other.minArity),
+                Math.min(maxArity, other.maxArity),
+                meetAll(children, other.children),
+                Math.max(minDepth, other.minDepth),
+                symbols);
+    }
+
+    private static List<PatternAnalysis> meetAll(
+            List<PatternAnalysis> analyses, List<PatternAnalysis> otherAnalyses) {
+        if (analyses == null) return otherAnalyses;
+        // if the sizes differ, the widths of the meet contradict each other
+        if (otherAnalyses == null || analyses.size() != otherAnalyses.size()) return analyses;
+        List<PatternAnalysis> meet = new ArrayList<>(analyses.size());
+        for (int i = 0; i < analyses.size(); i++)
+            meet.add(analyses.get(i).meet(otherAnalyses.get(i)));
+        return meet;
+    }
+
+    /** Combines two analyses of patterns of which at least one has to match. */
+    private PatternAnalysis join(PatternAnalysis other) {
+        if (isUnsatisfiable()) return other;
+        if (other.isUnsatisfiable()) return this;
+
+        Set<Object> names = null;
+        if (rootNames != null && other.rootNames != null) {
+            names = new HashSet<>(rootNames);
+            names.addAll(other.rootNames);
+        }
+
+        Set<Object> symbols = new HashSet<>(requiredSymbols);
+        symbols.retainAll(other.requiredSymbols);
+
+        return new PatternAnalysis(
+                Math.min(minForestWidth, other.minForestWidth),
+                Math.max(maxForestWidth, other.maxForestWidth),
+                joinAll(trees, other.trees),
+                names,
+                Math.min(minArity, other.minArity),
+                Math.max(maxArity, other.maxArity),
+                joinAll(children, other.children),
+                Math.min(minDepth, other.minDepth),
+                symbols);
+    }
+
+    private static List<PatternAnalysis> joinAll(
+            List<PatternAnalysis> analyses, List<PatternAnalysis> otherAnalyses) {
+        if (analyses == null || otherAnalyses == null) return null;
+        if (analyses.size() != otherAnalyses.size()) return null;
+        List<PatternAnalysis> join = new ArrayList<>(analyses.size());
+        for (int i = 0; i < analyses.size(); i++)
+            join.add(analyses.get(i).join(otherAnalyses.get(i)));
+        return join;
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        return a > Integer.MAX_VALUE - b ? Integer.MAX_VALUE : a + b;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // RESULTS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return the minimal number of trees in a matched forest
+     */
+    public int getMinForestWidth() {
+        return minForestWidth;
+    }
+
+    /**
+     * @return the maximal number of trees in a matched forest or {@link Integer#MAX_VALUE} if
+     *     unbounded
+     */
+    public int getMaxForestWidth() {
+        return maxForestWidth;
+    }
+
+    /**
+     * Returns the names the root of a matched tree may have, i.e. the root of a matched forest
+     * consisting of a single tree.
+     *
+     * @return the possible root names or empty if the root may have any name
+     */
+    public Optional<Set<Object>> getRootNames() {
+        return Optional.ofNullable(rootNames).map(Collections::unmodifiableSet);
+    }
+
+    /**
+     * @return the minimal number of children of a matched tree
+     */
+    public int getMinArity() {
+        return minArity;
+    }
+
+    /**
+     * @return the maximal number of children of a matched tree or {@link Integer#MAX_VALUE} if
+     *     unbounded
+     */
+    public int getMaxArity() {
+        return maxArity;
+    }
+
+    /**
+     * @return the minimal height of the highest tree in a matched forest, where leaves have height
+     *     0
+     */
+    public int getMinDepth() {
+        return minDepth;
+    }
+
+    /**
+     * Returns the names that occur in every matched forest (in any of its trees at any position).
+     *
+     * @return the required names
+     */
+    public Set<Object> getRequiredSymbols() {
+        if (requiredSymbols == null) return Collections.emptySet();
+        return Collections.unmodifiableSet(requiredSymbols);
+    }
+
+    /**
+     * @return true if the analysed pattern does not match any forest at all
+     */
+    public boolean isUnsatisfiable() {
+        return minForestWidth > maxForestWidth
+                || (rootNames != null && rootNames.isEmpty())
+                || minArity > maxArity;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // GUARDS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Checks whether the given tree satisfies the conditions on its width, root name and arity.
+     *
+     * @param tree the tree to check
+     * @return false if the analysed pattern does not match the given tree
+     */
+    public boolean admits(Tree<?> tree) {
+        if (minForestWidth > 1 || maxForestWidth < 1) return false;
+        if (trees != null && trees.size() == 1 && !trees.get(0).admits(tree)) return false;
+        if (rootNames != null && tree instanceof Term && !rootNames.contains(getRootName(tree)))
+            return false;
+        int arity = tree.getNumberOfChildren();
+        if (arity < minArity || arity > maxArity) return false;
+        if (children != null)
+            for (int i = 0; i < arity; i++)
+                if (!children.get(i).admits(tree.getChild(i))) return false;
+        return true;
+    }
+
+    /**
+     * Checks whether the given forest satisfies the conditions on its width, root names and
+     * arities.
+     *
+     * @param forest the forest to check
+     * @return false if the analysed pattern does not match the given forest
+     */
+    public boolean admits(List<? extends Tree<?>> forest) {
+        int width = forest.size();
+        if (width < minForestWidth || width > maxForestWidth) return false;
+        if (width == 1) return admits(forest.get(0));
+        if (trees != null && trees.size() == width)
+            for (int i = 0; i < width; i++) if (!trees.get(i).admits(forest.get(i))) return false;
+        return true;
+    }
+
+    /** Returns the name of the root of the given tree, or null if it is not a term. */
+    static Object getRootName(Tree<?> tree) {
+        if (tree instanceof Term) return ((Term<?, ?>) tree).getName();
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternAnalysis [width="
+                + minForestWidth
+                + ".."
+                + maxForestWidth
+                + ", rootNames="
+                + rootNames
+                + ", arity="
+                + minArity
+                + ".."
+                + maxArity
+                + ", minDepth="
+                + minDepth
+                + ", requiredSymbols="
+                + requiredSymbols
+                + "]";
+    }
+}
@@ -9,6 +9,7 @@ import de.tudortmund.cs.iltis.utils.tree.pattern.match.MatchIterator;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.QueueMatchIterator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import javax.validation.constraints.NotNull;
@@ -45,10 +46,22 @@ public class RepeatForestPattern<MatchedT extends Tree<MatchedT>> extends TreePa
         @Override
         protected boolean initMatching() {
             if (!isConsistentWithThisPatternsName(match, forest)) return false;
+
+            // a variable-free subpattern needs neither iterated names nor a conjunction
+            TreePattern<MatchedT> subpattern = getChild(0);
+            if (subpattern.compiled() != null) {
+                CompiledPattern.Memo memo = new CompiledPattern.Memo();
+                for (int i = 0; i < forest.size(); i++)
+                    if (!compiledMatchIterator(subpattern, match, forest, i, i + 1, memo).hasNext())
+                        return false;
+                forestMatchIterator = Collections.singletonList(match).iterator();
+                return true;
+            }
+
+            List<TreePattern<MatchedT>> iteratedSubpatterns = getIteratedSubpatterns(forest.size());
             List<Iterator<Match<MatchedT>>> matchIterators = new ArrayList<>(forest.size());
             for (int i = 0; i < forest.size(); i++) {
-                matchIterators.add(
-                        getChild(0).cloneWithIteratedName(i).matchIterator(match, forest.get(i)));
+                matchIterators.add(iteratedSubpatterns.get(i).matchIterator(match, forest.get(i)));
             }
             forestMatchIterator = ConjunctionTreeMatchIterator.fromIterators(matchIterators);
             return true;
@@ -66,6 +79,14 @@ public class RepeatForestPattern<MatchedT extends Tree<MatchedT>> extends TreePa
         private RepeatForestPatternMatchIterator() {}
     }
 
+    /**
+     * The clones of the subpattern with iterated names, where the i-th clone is used for the i-th
+     * tree of the forest. Grown on demand and replaced as a whole, see {@link
+     * #getIteratedSubpatterns(int)}.
+     */
+    private transient volatile List<TreePattern<MatchedT>> iteratedSubpatterns =
+            Collections.emptyList();
+
     public RepeatForestPattern(@NotNull final TreePattern<MatchedT> subpattern) {
         super(true, Arrays.asList(subpattern));
     }
@@ -82,6 +103,31 @@ public class RepeatForestPattern<MatchedT extends Tree<MatchedT>> extends TreePa
         super(true, name, eqTester, Arrays.asList(subpattern));
     }
 
+    /**
+     * Returns the clones of the subpattern with iterated names for (at least) the given number of
+     * iterations, see {@link #cloneWithIteratedName(int)}.
+     *
+     * <p>The clones are cached, so that they are only created once instead of on every match. Like
+     * the static analysis (see {@link #getAnalysis()}), the cache is not updated if the subpattern
+     * is modified later on.
+     *
+     * @param iterations the number of iterations
+     * @return an unmodifiable list of the clones whose i-th element is used for iteration i
+     */
+    protected List<TreePattern<MatchedT>> getIteratedSubpatterns(int iterations) {
+        List<TreePattern<MatchedT>> clones = iteratedSubpatterns;
+        if (clones == null) clones = Collections.emptyList();
+        if (clones.size() >= iterations) return clones;
+
+        List<TreePattern<MatchedT>> grownClones = new ArrayList<>(iterations);
+        grownClones.addAll(clones);
+        for (int i = clones.size(); i < iterations; i++)
+            grownClones.add(getChild(0).cloneWithIteratedName(i));
+        clones = Collections.unmodifiableList(grownClones);
+        iteratedSubpatterns = clones;
+        return clones;
+    }
+
     @Override
     public PatternType getType() {
         return TreePatternType.RepeatForestPattern;
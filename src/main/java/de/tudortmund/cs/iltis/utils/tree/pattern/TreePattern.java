@@ -75,6 +75,19 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
 
     protected SerializableBiFunction<List<MatchedT>, List<MatchedT>, Boolean> eqTester;
 
+    /**
+     * The compiled form of this pattern, or null if not compiled (yet), see {@link #compiled()}.
+     */
+    private transient CompiledPattern<MatchedT> compiledPattern;
+
+    /** Whether this pattern has already been tried to compile. */
+    private transient boolean compilationAttempted;
+
+    /**
+     * The static analysis of this pattern, or null if not computed yet, see {@link #getAnalysis()}.
+     */
+    private transient PatternAnalysis analysis;
+
     ///////////////////////////////////////////////////////////////////////////
     // CONSTRUCTORS
     ///////////////////////////////////////////////////////////////////////////
@@ -269,19 +282,43 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
      * @return true iff the pattern matches
      */
     public boolean matches(@NotNull final MatchedT tree) {
-        return matchIterator(tree).hasNext();
+        return matches(Collections.singletonList(tree));
     }
 
     /**
      * Checks if this pattern matches a given forest, i.e. a list of trees.
      *
+     * <p>Forests which violate the static analysis of this pattern (see {@link #getAnalysis()}) are
+     * rejected immediately. If neither this pattern nor any of its subpatterns is named, the
+     * pattern is compiled on first use (see {@link CompiledPattern}) and no match objects are
+     * created. Otherwise, this is equivalent to {@code matchIterator(forest).hasNext()}.
+     *
      * @param forest the forest to be matched
      * @return whether the pattern matches
      */
     public boolean matches(@NotNull final List<MatchedT> forest) {
+        if (!getAnalysis().admits(forest)) return false;
+        CompiledPattern<MatchedT> compiled = compiled();
+        if (compiled != null) return compiled.matches(forest);
         return matchIterator(forest).hasNext();
     }
 
+    /**
+     * Returns the compiled form of this pattern, compiling it on first call.
+     *
+     * <p>Patterns are expected not to change after construction; the compiled form is not updated
+     * if subpatterns are modified later on.
+     *
+     * @return the compiled pattern or null if this pattern cannot be compiled
+     */
+    CompiledPattern<MatchedT> compiled() {
+        if (!compilationAttempted) {
+            compiledPattern = CompiledPattern.compile(this);
+            compilationAttempted = true;
+        }
+        return compiledPattern;
+    }
+
     /**
      * Returns the first match returned by a match iterator of empty if the given tree is not
      * matched.
@@ -301,6 +338,7 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
      * @return the first match or empty if the given forest is not matched
      */
     public Optional<Match<MatchedT>> getFirstMatchIfAny(@NotNull final List<MatchedT> forest) {
+        if (!getAnalysis().admits(forest)) return Optional.empty();
         Iterator<Match<MatchedT>> matchIterator = matchIterator(forest);
         if (matchIterator.hasNext()) return Optional.of(matchIterator.next());
         return Optional.empty();
@@ -324,11 +362,89 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
      */
     public Set<Match<MatchedT>> getAllMatches(@NotNull final List<MatchedT> forest) {
         ListSet<Match<MatchedT>> set = new ListSet<>();
+        if (!getAnalysis().admits(forest)) return set;
         Iterator<Match<MatchedT>> matchIterator = matchIterator(forest);
         matchIterator.forEachRemaining(set::add);
         return set;
     }
 
+    /**
+     * Decides a variable-free subpattern on the trees {@code forest[from..to)} by its compiled form
+     * (see {@link CompiledPattern}), looking up and storing the result in the given memo table.
+     *
+     * <p>A pattern is variable-free if neither it nor any of its subpatterns adds definitions to a
+     * match. Besides named patterns, this excludes patterns of unknown type, e.g. {@link
+     * AnyNamePattern}s, which define names on their own. A variable-free pattern does not extend
+     * matches, so its match iterator would yield the given match or nothing, irrespective of the
+     * given match. Composite patterns use this method to avoid re-matching such subpatterns for
+     * every partial match and to fail early.
+     *
+     * @param subpattern the subpattern to match
+     * @param match the match taken as a basis
+     * @param forest the forest containing the trees to be matched
+     * @param from the index of the first tree to be matched
+     * @param to the index after the last tree to be matched
+     * @param memo the memo table, scoped to one matching of the composite pattern
+     * @return an iterator yielding exactly the given match if the subpattern matches and nothing
+     *     otherwise; or null if the subpattern is not variable-free
+     */
+    static <MatchedT extends Tree<MatchedT>> Iterator<Match<MatchedT>> compiledMatchIterator(
+            @NotNull final TreePattern<MatchedT> subpattern,
+            @NotNull final Match<MatchedT> match,
+            @NotNull final List<MatchedT> forest,
+            int from,
+            int to,
+            @NotNull final CompiledPattern.Memo memo) {
+        CompiledPattern<MatchedT> compiled = subpattern.compiled();
+        if (compiled == null) return null;
+        if (!compiled.matches(forest, from, to, memo)) return new EmptyIterator<>();
+        return Collections.singletonList(match).iterator();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // STATIC ANALYSIS
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the static analysis of this pattern, which describes necessary conditions for a
+     * forest to be matched, e.g. its width or the names of roots (see {@link PatternAnalysis}).
+     * Indexes over many patterns can use the analysis to select candidate patterns for a tree.
+     *
+     * <p>Like the compiled form, the analysis is computed on first call and not updated if
+     * subpatterns are modified later on.
+     *
+     * @return the analysis of this pattern
+     */
+    public PatternAnalysis getAnalysis() {
+        if (analysis == null) analysis = PatternAnalysis.of(this);
+        return analysis;
+    }
+
+    /**
+     * Returns a lower bound for the number of trees in the forests matched by this pattern.
+     *
+     * <p>The bounds are derived statically from the structure of this pattern, e.g. a {@link
+     * FixedArityForestPattern} with n subpatterns only matches forests of n trees and a {@link
+     * FlexibleArityForestPattern} only matches forests whose width lies between the sums of the
+     * bounds of its subpatterns. If the lower bound exceeds the upper bound, this pattern does not
+     * match any forest. See {@link #getAnalysis()}.
+     *
+     * @return the minimal width of a matched forest
+     */
+    public int getMinForestWidth() {
+        return getAnalysis().getMinForestWidth();
+    }
+
+    /**
+     * Returns an upper bound for the number of trees in the forests matched by this pattern, see
+     * {@link #getMinForestWidth()}.
+     *
+     * @return the maximal width of a matched forest or {@link Integer#MAX_VALUE} if unbounded
+     */
+    public int getMaxForestWidth() {
+        return getAnalysis().getMaxForestWidth();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // CONVIENIENCE METHODS
     ///////////////////////////////////////////////////////////////////////////
@@ -519,7 +635,7 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
     protected List<MatchedT> createForestByMatchAndSubpatterns(
             @NotNull final Match<MatchedT> match) {
         List<MatchedT> forest = new ArrayList<>();
-        for (TreePattern<MatchedT> pattern : getChildren()) {
+        for (TreePattern<MatchedT> pattern : childrenView()) {
             forest.addAll(pattern.createForest(match));
         }
         return forest;
@@ -591,7 +707,9 @@ public abstract class TreePattern<MatchedT extends Tree<MatchedT>>
     protected static IndexedSymbol iterateName(final IndexedSymbol symbol, int iteration) {
         if (symbol == null) return null;
         String name = symbol.getName();
-        name = name.replaceFirst("\\[]", "[" + iteration + "]");
+        int brackets = name.indexOf("[]");
+        if (brackets >= 0)
+            name = name.substring(0, brackets + 1) + iteration + name.substring(brackets + 1);
         return new IndexedSymbol(name, symbol.getSubscript(), symbol.getSuperscript());
     }
 
@@ -0,0 +1,162 @@
+package de.tudortmund.cs.iltis.utils.tree.pattern;
+
+import de.tudortmund.cs.iltis.utils.collections.ImmutablePair;
+import de.tudortmund.cs.iltis.utils.term.Term;
+import de.tudortmund.cs.iltis.utils.term.pattern.ExactNamePattern;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
+import java.util.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * An index over many tree patterns which, given a tree, quickly selects the patterns that can
+ * possibly match it.
+ *
+ * <p>The index relies on the static analysis of each pattern (see {@link PatternAnalysis}): the
+ * names the root of a matched tree may have (from {@link ExactNamePattern}s), the possible numbers
+ * of its children and the properties of the children. The analyses over-approximate the set of
+ * matched trees, so no match is ever lost.
+ *
+ * <p>Patterns are discriminated by the required root name through a hash map, such that looking up
+ * candidates for a tree only touches the patterns that are compatible with the tree's root name and
+ * the patterns without a name constraint. The remaining candidates are filtered by their analyses.
+ * Candidates are always returned in the order in which the patterns were added to the index.
+ *
+ * <p>The root names are only known for trees which are {@link Term}s; for other trees only the
+ * arity is used to discriminate patterns.
+ *
+ * @param <MatchedT> the type of tree to be matched
+ */
+public class TreePatternIndex<MatchedT extends Tree<MatchedT>> {
+
+    private final Map<Object, List<Entry<MatchedT>>> entriesByRootName = new HashMap<>();
+
+    private final List<Entry<MatchedT>> entriesWithAnyRootName = new ArrayList<>();
+
+    private final List<TreePattern<MatchedT>> patterns = new ArrayList<>();
+
+    /** Creates an empty index. */
+    public TreePatternIndex() {}
+
+    /**
+     * Creates an index of the given patterns.
+     *
+     * @param patterns the patterns to index, in the order in which candidates are returned
+     */
+    public TreePatternIndex(@NotNull final Iterable<? extends TreePattern<MatchedT>> patterns) {
+        for (TreePattern<MatchedT> pattern : patterns) add(pattern);
+    }
+
+    /**
+     * Adds the given pattern to this index.
+     *
+     * @param pattern the pattern to add
+     */
+    public void add(@NotNull final TreePattern<MatchedT> pattern) {
+        Entry<MatchedT> entry = new Entry<>(patterns.size(), pattern);
+        patterns.add(pattern);
+
+        PatternAnalysis analysis = pattern.getAnalysis();
+        if (analysis.isUnsatisfiable()) return;
+        if (!analysis.getRootNames().isPresent()) {
+            entriesWithAnyRootName.add(entry);
+            return;
+        }
+        for (Object rootName : analysis.getRootNames().get())
+            entriesByRootName.computeIfAbsent(rootName, key -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * @return all indexed patterns in the order of their addition
+     */
+    public List<TreePattern<MatchedT>> getPatterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+
+    /**
+     * @return the number of indexed patterns
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Returns the patterns of this index that can possibly match the given tree.
+     *
+     * <p>All patterns that match the given tree are returned, but not all returned patterns
+     * necessarily match.
+     *
+     * @param tree the tree to be matched
+     * @return the candidate patterns in the order of their addition
+     */
+    public List<TreePattern<MatchedT>> getCandidates(@NotNull final MatchedT tree) {
+        List<Entry<MatchedT>> named = Collections.emptyList();
+        Object rootName = PatternAnalysis.getRootName(tree);
+        if (rootName != null)
+            named = entriesByRootName.getOrDefault(rootName, Collections.emptyList());
+
+        // merge both lists, which are ordered by addition
+        List<TreePattern<MatchedT>> candidates = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < named.size() || j < entriesWithAnyRootName.size()) {
+            Entry<MatchedT> entry;
+            if (j == entriesWithAnyRootName.size()
+                    || (i < named.size()
+                            && named.get(i).order < entriesWithAnyRootName.get(j).order))
+                entry = named.get(i++);
+            else entry = entriesWithAnyRootName.get(j++);
+            if (entry.pattern.getAnalysis().admits(tree)) candidates.add(entry.pattern);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the first match of each indexed pattern that matches the given tree.
+     *
+     * <p>The results are listed per pattern added to this index, so patterns which are equal but
+     * were added separately, e.g. for different rules, get separate results.
+     *
+     * @param tree the tree to be matched
+     * @return pairs of the matching patterns and their first matches, in the order of addition
+     */
+    public List<ImmutablePair<TreePattern<MatchedT>, Match<MatchedT>>> getFirstMatches(
+            @NotNull final MatchedT tree) {
+        List<ImmutablePair<TreePattern<MatchedT>, Match<MatchedT>>> matches = new ArrayList<>();
+        for (TreePattern<MatchedT> candidate : getCandidates(tree))
+            candidate
+                    .getFirstMatchIfAny(tree)
+                    .ifPresent(match -> matches.add(new ImmutablePair<>(candidate, match)));
+        return matches;
+    }
+
+    /**
+     * Returns all matches of each indexed pattern that matches the given tree.
+     *
+     * <p>The results are listed per pattern added to this index, see {@link
+     * #getFirstMatches(Tree)}.
+     *
+     * @param tree the tree to be matched
+     * @return pairs of the matching patterns and all their matches, in the order of addition
+     */
+    public List<ImmutablePair<TreePattern<MatchedT>, Set<Match<MatchedT>>>> getAllMatches(
+            @NotNull final MatchedT tree) {
+        List<ImmutablePair<TreePattern<MatchedT>, Set<Match<MatchedT>>>> matches =
+                new ArrayList<>();
+        for (TreePattern<MatchedT> candidate : getCandidates(tree)) {
+            Set<Match<MatchedT>> candidateMatches = candidate.getAllMatches(tree);
+            if (!candidateMatches.isEmpty())
+                matches.add(new ImmutablePair<>(candidate, candidateMatches));
+        }
+        return matches;
+    }
+
+    private static class Entry<MatchedT extends Tree<MatchedT>> {
+        private final int order;
+        private final TreePattern<MatchedT> pattern;
+
+        private Entry(int order, TreePattern<MatchedT> pattern) {
+            this.order = order;
+            this.pattern = pattern;
+        }
+    }
+}
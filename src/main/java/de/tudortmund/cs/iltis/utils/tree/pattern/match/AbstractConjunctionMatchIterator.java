@@ -1,8 +1,12 @@
 package de.tudortmund.cs.iltis.utils.tree.pattern.match;
 
 import de.tudortmund.cs.iltis.utils.collections.PreCalcIterator;
-import de.tudortmund.cs.iltis.utils.collections.SetCombinationsIterator;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import javax.validation.constraints.NotNull;
@@ -11,44 +15,123 @@ import javax.validation.constraints.NotNull;
  * Abstract class which implements the workflow to create a conjunction of a given set of matches.
  *
  * <p>All methods handle abstract {@link Match}es, not {@link TreeMatch}es. The benefit of this
- * class is a clean handling of negatively and positively defined forests. Uses the {@link
- * SetCombinationsIterator}
+ * class is a clean handling of negatively and positively defined forests.
+ *
+ * <p>The conjunction is computed like a join: a partial match is extended by one match of each
+ * conjunct after another (depth-first). As soon as a match conflicts with the partial match, e.g.
+ * since they map the same name to different trees, the remaining conjuncts are not considered for
+ * this partial match. Thus, the running time is proportional to the number of consistent partial
+ * matches instead of the number of all combinations of matches. The matches of the conjuncts are
+ * pulled from their iterators only when the search reaches them and are cached for backtracking, so
+ * the first conjunction does not require to enumerate all matches. The conjunction of zero
+ * conjuncts is the empty match.
+ *
+ * <p>The order of the conjuncts only affects the running time. If the matches are given as sets,
+ * the conjuncts with few matches are combined first. Iterators, e.g. those given to {@link
+ * ConjunctionTreeMatchIterator#fromIterators(java.util.Collection)}, are combined in the given
+ * order, since the number of their matches is unknown in advance. The patterns using this class
+ * decide their variable-free subpatterns first and only pass the remaining ones.
+ *
+ * <p>This class no longer provides the protected field {@code it} and the method {@code
+ * createMatch}: the conjunction is not formed from an enumeration of all combinations of matches
+ * any more. Subclasses only implement {@link #createEmptyMatch()}.
  *
  * @param <MatchedT> the type of tree to be matched
  */
 public abstract class AbstractConjunctionMatchIterator<MatchedT extends Tree<MatchedT>>
         extends PreCalcIterator<Match<MatchedT>> {
 
-    protected SetCombinationsIterator<Match<MatchedT>> it;
+    /** The iterators over the matches of the conjuncts, in the order they are combined. */
+    protected List<Iterator<Match<MatchedT>>> iterators;
+
+    /** The matches of the conjuncts pulled from their iterators so far. */
+    private List<List<Match<MatchedT>>> pulledMatches;
+
+    /** The i-th element is the conjunction of the currently chosen matches of the first i. */
+    private List<Match<MatchedT>> partialMatches;
+
+    /** The indices of the currently chosen matches of the conjuncts. */
+    private int[] chosen;
 
     public AbstractConjunctionMatchIterator(@NotNull Set<Set<Match<MatchedT>>> matches) {
-        it = new SetCombinationsIterator<>(matches);
+        List<Set<Match<MatchedT>>> conjuncts = new ArrayList<>(matches);
+        // most selective conjuncts first, the sort is stable
+        conjuncts.sort(Comparator.comparingInt(Set::size));
+        iterators = new ArrayList<>(conjuncts.size());
+        for (Set<Match<MatchedT>> conjunct : conjuncts) iterators.add(conjunct.iterator());
     }
 
     protected AbstractConjunctionMatchIterator() {}
 
     @Override
-    protected Match<MatchedT> calculateNext() {
-        Optional<? extends Match<MatchedT>> opMatch = Optional.empty();
+    protected boolean init() {
+        for (Iterator<Match<MatchedT>> iterator : iterators) if (!iterator.hasNext()) return false;
 
-        while (it.hasNext() && !opMatch.isPresent()) {
-            opMatch = createMatch(it.next());
-        }
+        pulledMatches = new ArrayList<>(iterators.size());
+        for (int i = 0; i < iterators.size(); i++) pulledMatches.add(new ArrayList<>());
+        partialMatches = new ArrayList<>(iterators.size() + 1);
+        partialMatches.add(createEmptyMatch());
+        chosen = new int[iterators.size()];
+        Arrays.fill(chosen, -1);
+        return true;
+    }
 
-        if (opMatch.isPresent()) return opMatch.get();
-        return null;
+    @Override
+    protected Match<MatchedT> calculateFirst() {
+        return search();
     }
 
-    protected Optional<? extends Match<MatchedT>> createMatch(
-            Iterable<Match<MatchedT>> matchesToCombine) {
+    @Override
+    protected Match<MatchedT> calculateNext() {
+        // the previous match used all conjuncts, so continue with another match of the last one
+        if (iterators.isEmpty()) return null;
+        partialMatches.remove(partialMatches.size() - 1);
+        return search();
+    }
 
-        Optional<? extends Match<MatchedT>> match = Optional.of(createEmptyMatch());
+    /**
+     * Extends the current partial match depth-first until all conjuncts are used, backtracking
+     * whenever a conjunct has no further match consistent with the partial match.
+     *
+     * @return the next conjunction or null if there is none
+     */
+    private Match<MatchedT> search() {
+        int depth = partialMatches.size() - 1;
+        while (depth < iterators.size()) {
+            Optional<? extends Match<MatchedT>> extension = Optional.empty();
+            while (!extension.isPresent()) {
+                Match<MatchedT> candidate = getMatch(depth, ++chosen[depth]);
+                if (candidate == null) break;
+                extension = partialMatches.get(depth).withMatch(candidate);
+            }
 
-        for (Match<MatchedT> matchToAdd : matchesToCombine) {
-            match = match.get().withMatch(matchToAdd);
-            if (!match.isPresent()) break;
+            if (extension.isPresent()) {
+                partialMatches.add(extension.get());
+                depth++;
+                if (depth < iterators.size()) chosen[depth] = -1;
+            } else {
+                if (depth == 0) return null;
+                partialMatches.remove(depth);
+                depth--;
+            }
         }
+        return partialMatches.get(depth);
+    }
 
+    /**
+     * Returns the match with the given index of the given conjunct, pulling it from the iterator of
+     * the conjunct if necessary.
+     *
+     * @return the match or null if the conjunct has no more matches
+     */
+    private Match<MatchedT> getMatch(int conjunct, int index) {
+        List<Match<MatchedT>> pulled = pulledMatches.get(conjunct);
+        if (index < pulled.size()) return pulled.get(index);
+        Iterator<Match<MatchedT>> iterator = iterators.get(conjunct);
+        if (!iterator.hasNext()) return null;
+        Match<MatchedT> match = iterator.next();
+        // the matches of the first conjunct are not revisited by backtracking
+        if (conjunct > 0) pulled.add(match);
         return match;
     }
 
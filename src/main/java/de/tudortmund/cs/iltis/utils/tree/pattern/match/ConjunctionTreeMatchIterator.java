@@ -1,7 +1,7 @@
 package de.tudortmund.cs.iltis.utils.tree.pattern.match;
 
-import de.tudortmund.cs.iltis.utils.collections.SetCombinationsIterator;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
@@ -26,11 +26,20 @@ public class ConjunctionTreeMatchIterator<MatchedT extends Tree<MatchedT>>
         super(matches);
     }
 
+    /**
+     * Creates a new conjunction tree match iterator which iterates over the matches that arise of
+     * forming the conjunction of the matches returned by the given iterators. The conjuncts are
+     * combined in the given order, so the iterator with the fewest expected matches should come
+     * first.
+     *
+     * @param iterators the iterators over the matches to form the conjunction with
+     * @return the new iterator
+     */
     public static <MatchedT extends Tree<MatchedT>>
             ConjunctionTreeMatchIterator<MatchedT> fromIterators(
                     @NotNull Collection<Iterator<Match<MatchedT>>> iterators) {
         ConjunctionTreeMatchIterator<MatchedT> conjIt = new ConjunctionTreeMatchIterator<>();
-        conjIt.it = SetCombinationsIterator.fromIterators(iterators);
+        conjIt.iterators = new ArrayList<>(iterators);
         return conjIt;
     }
 
@@ -219,4 +219,22 @@ public interface Match<MatchedT extends Tree<MatchedT>> extends Serializable {
      * @return a set of all negatively defined ids
      */
     Set<IndexedSymbol> getAllNegativelyDefinedIds();
+
+    /**
+     * Returns a hash value used to eliminate duplicate matches (see {@link QueueMatchIterator}).
+     *
+     * <p>Equal matches must have equal fingerprints. The default implementation combines the ids
+     * and forests of the positive definitions and the ids of the negative definitions; the sets of
+     * negatively defined forests are left out since they may be compared by custom equality
+     * testers.
+     *
+     * @return the fingerprint of this match
+     */
+    default int fingerprint() {
+        int fingerprint = 0;
+        for (IndexedSymbol id : getAllDefinedIds())
+            fingerprint += id.hashCode() ^ getDefinedForest(id).get().hashCode();
+        for (IndexedSymbol id : getAllNegativelyDefinedIds()) fingerprint += 31 * id.hashCode();
+        return fingerprint;
+    }
 }
@@ -1,9 +1,11 @@
 package de.tudortmund.cs.iltis.utils.tree.pattern.match;
 
 import de.tudortmund.cs.iltis.utils.tree.Tree;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import javax.validation.constraints.NotNull;
 
@@ -12,14 +14,24 @@ import javax.validation.constraints.NotNull;
  * method {@link #calculateNextMatch()} which is to be overridden by subclasses.
  *
  * <p>These iterators save the previously returned matches and do not return a match object twice by
- * {@link #next()}, even if {@link #calculateNextMatch()} returns the same match twice.
+ * {@link #next()}, even if {@link #calculateNextMatch()} returns the same match twice. The returned
+ * matches are kept in a hash table by their {@link Match#fingerprint() fingerprints}, so checking a
+ * new match takes expected constant time. The table is only created once a match is returned by
+ * {@link #next()}: a mere existence check by {@link #hasNext()} (as in {@link
+ * de.tudortmund.cs.iltis.utils.tree.pattern.TreePattern#matches(List)}) does not store any match.
+ * Subclasses whose matches are distinct anyway can switch off duplicate elimination by overriding
+ * {@link #mayProduceDuplicates()}. Currently, only the iterator of {@link
+ * de.tudortmund.cs.iltis.utils.tree.pattern.ChildrenPattern} does so; all other iterators eliminate
+ * duplicates.
  *
  * @param <MatchedT> the type of tree to be matched
  */
 public abstract class QueueMatchIterator<MatchedT extends Tree<MatchedT>>
         extends MatchIterator<MatchedT> {
 
-    protected Deque<Match<MatchedT>> previousElements;
+    /** The previously returned matches by their fingerprints, or null if none was returned yet. */
+    private Map<Integer, List<Match<MatchedT>>> previousElements;
+
     protected Queue<Match<MatchedT>> nextElements;
     protected boolean nextIsCalculated;
     protected boolean isInited;
@@ -48,7 +60,7 @@ public abstract class QueueMatchIterator<MatchedT extends Tree<MatchedT>>
         if (isInited) return;
 
         nextElements = new LinkedList<>();
-        previousElements = new LinkedList<>();
+        previousElements = null;
         boolean inited = initMatching();
         if (inited) nextIsCalculated = false;
         else nextIsCalculated = true;
@@ -76,12 +88,33 @@ public abstract class QueueMatchIterator<MatchedT extends Tree<MatchedT>>
         Match<MatchedT> newMatch;
         do {
             newMatch = calculateNextMatch();
-        } while (newMatch != null
-                && (previousElements.contains(newMatch) || nextElements.contains(newMatch)));
+        } while (newMatch != null && mayProduceDuplicates() && wasReturned(newMatch));
         if (newMatch != null) nextElements.add(newMatch);
         nextIsCalculated = true;
     }
 
+    /**
+     * Returns whether {@link #calculateNextMatch()} may return equal matches, which need to be
+     * eliminated. Subclasses which know that all their matches are distinct can override this
+     * method to return false; then, no previously returned matches are stored.
+     *
+     * @return true iff duplicate matches need to be eliminated
+     */
+    protected boolean mayProduceDuplicates() {
+        return true;
+    }
+
+    private boolean wasReturned(Match<MatchedT> match) {
+        if (previousElements == null) return false;
+        List<Match<MatchedT>> bucket = previousElements.get(match.fingerprint());
+        return bucket != null && bucket.contains(match);
+    }
+
+    private void markAsReturned(Match<MatchedT> match) {
+        if (previousElements == null) previousElements = new HashMap<>();
+        previousElements.computeIfAbsent(match.fingerprint(), key -> new ArrayList<>(1)).add(match);
+    }
+
     /**
      * Calculates one element unequal to null per call if any further element exists. Is to be
      * overridden in subclasses.
@@ -103,7 +136,7 @@ public abstract class QueueMatchIterator<MatchedT extends Tree<MatchedT>>
         addNextMatchesIfNecessary();
         Match<MatchedT> result = nextElements.poll();
         if (result != null) {
-            previousElements.add(result);
+            if (mayProduceDuplicates()) markAsReturned(result);
             nextIsCalculated = false;
         }
         return result;
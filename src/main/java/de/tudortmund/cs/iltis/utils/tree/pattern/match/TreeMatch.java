@@ -4,6 +4,7 @@ import de.tudortmund.cs.iltis.utils.IndexedSymbol;
 import de.tudortmund.cs.iltis.utils.collections.Either;
 import de.tudortmund.cs.iltis.utils.collections.EqualsFunction;
 import de.tudortmund.cs.iltis.utils.collections.ListSet;
+import de.tudortmund.cs.iltis.utils.collections.PersistentSortedMap;
 import de.tudortmund.cs.iltis.utils.function.SerializableBiFunction;
 import de.tudortmund.cs.iltis.utils.general.Data;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
@@ -11,7 +12,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -26,6 +26,10 @@ import javax.validation.constraints.NotNull;
  * <p>Trees are internally handled as forests of size 1. All methods for trees are delegating to the
  * methods for forest and extracting the first element of the forest.
  *
+ * <p>The mappings are stored in {@link PersistentSortedMap}s, so a match object derived by one of
+ * the {@code with...} methods shares its storage with the original one: deriving a match takes
+ * O(log n) time and space for each new mapping instead of copying all n mappings.
+ *
  * @param <MatchedT> the type of tree to map to ids
  */
 public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<MatchedT> {
@@ -37,9 +41,9 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
 
     /** Creates a new empty tree match object with an {@link EqualsFunction} as equality tester. */
     public TreeMatch() {
-        definedForests = new TreeMap<>();
+        definedForests = new PersistentSortedMap<>();
         defaultEqTester = new EqualsFunction<>();
-        eqTesterForIds = new TreeMap<>();
+        eqTesterForIds = new PersistentSortedMap<>();
     }
 
     /**
@@ -50,9 +54,9 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
     public TreeMatch(
             @NotNull SerializableBiFunction<List<MatchedT>, List<MatchedT>, Boolean>
                             equalityTester) {
-        definedForests = new TreeMap<>();
+        definedForests = new PersistentSortedMap<>();
         defaultEqTester = equalityTester;
-        eqTesterForIds = new TreeMap<>();
+        eqTesterForIds = new PersistentSortedMap<>();
     }
 
     // GETTER
@@ -250,9 +254,39 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
      */
     @Override
     public Optional<? extends Match<MatchedT>> withMatch(@NotNull Match<MatchedT> other) {
+        if (other instanceof TreeMatch) {
+            TreeMatch<MatchedT> otherTreeMatch = (TreeMatch<MatchedT>) other;
+            // this match is immutable, so there is no need to copy it
+            if (otherTreeMatch.definedForests.isEmpty()) return Optional.of(this);
+            return extendMatchByTreeMatch(clone(), otherTreeMatch);
+        }
         return extendMatchByMatch(clone(), other);
     }
 
+    /**
+     * Like {@link #extendMatchByMatch(TreeMatch, Match)}, but iterates over the mappings of the
+     * other match directly instead of querying them one by one.
+     */
+    protected static <MatchedT extends Tree<MatchedT>>
+            Optional<TreeMatch<MatchedT>> extendMatchByTreeMatch(
+                    @NotNull TreeMatch<MatchedT> basis, @NotNull TreeMatch<MatchedT> other) {
+        Optional<TreeMatch<MatchedT>> copy = Optional.of(basis);
+
+        for (Map.Entry<IndexedSymbol, Either<List<MatchedT>, ListSet<List<MatchedT>>>> entry :
+                other.definedForests.entrySet()) {
+            IndexedSymbol sym = entry.getKey();
+            copy =
+                    copy.get()
+                            .extendMatch(
+                                    sym,
+                                    entry.getValue(),
+                                    other.eqTesterForIds.getOrDefault(sym, other.defaultEqTester));
+            if (!copy.isPresent()) return copy;
+        }
+
+        return copy;
+    }
+
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     protected static <MatchedT extends Tree<MatchedT>>
             Optional<TreeMatch<MatchedT>> extendMatchByMatch(
@@ -331,8 +365,11 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
                     matches = false;
                 }
             } else {
-                // both, contained and new value are negative
-                containedValue.getRight().addAll(value.getRight());
+                // both, contained and new value are negative; the contained set may be shared
+                ListSet<List<MatchedT>> listSet =
+                        new ListSet<>(containedValue.getRight(), eqTester);
+                listSet.addAll(value.getRight());
+                this.definedForests.put(id, Either.right(listSet));
             }
         }
 
@@ -340,6 +377,18 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
         return Optional.empty();
     }
 
+    @Override
+    public int fingerprint() {
+        int fingerprint = 0;
+        for (Map.Entry<IndexedSymbol, Either<List<MatchedT>, ListSet<List<MatchedT>>>> entry :
+                definedForests.entrySet()) {
+            if (entry.getValue().isLeft())
+                fingerprint += entry.getKey().hashCode() ^ entry.getValue().getLeft().hashCode();
+            else fingerprint += 31 * entry.getKey().hashCode();
+        }
+        return fingerprint;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -367,13 +416,24 @@ public class TreeMatch<MatchedT extends Tree<MatchedT>> implements Match<Matched
         return "TreeMatch " + definedForests.toString();
     }
 
+    /**
+     * Creates a copy of this match object in constant time, which shares its storage with this
+     * match object.
+     *
+     * @return the copy
+     */
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     public TreeMatch<MatchedT> clone() {
         TreeMatch<MatchedT> copy = new TreeMatch<>(defaultEqTester);
-        for (IndexedSymbol id : this.definedForests.keySet())
-            copy.definedForests.put(id, this.definedForests.get(id));
-        for (IndexedSymbol id : this.eqTesterForIds.keySet())
-            copy.eqTesterForIds.put(id, this.eqTesterForIds.get(id));
+        copy.definedForests = fork(this.definedForests);
+        copy.eqTesterForIds = fork(this.eqTesterForIds);
         return copy;
     }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<IndexedSymbol, V> fork(Map<IndexedSymbol, V> map) {
+        if (map instanceof PersistentSortedMap)
+            return ((PersistentSortedMap<IndexedSymbol, V>) map).fork();
+        return new PersistentSortedMap<>(map);
+    }
 }
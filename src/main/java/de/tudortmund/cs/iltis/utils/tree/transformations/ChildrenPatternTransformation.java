@@ -4,11 +4,16 @@ import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.TreePath;
 import de.tudortmund.cs.iltis.utils.tree.pattern.TreePattern;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Transformation that replaces all children using patterns. Injects information of outer structure
  * into local patterns.
+ *
+ * <p>The children are replaced by {@link Tree#transformAllPersistently(Map)}, so the result shares
+ * all other subtrees with the given tree (see {@link Transformation}).
  */
 public class ChildrenPatternTransformation<T extends Tree<T>> extends UnaryPatternTransformation<T>
         implements InvertibleTransformation<T> {
@@ -40,8 +45,8 @@ public class ChildrenPatternTransformation<T extends Tree<T>> extends UnaryPatte
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T apply(T tree) {
-        T result = tree;
         T subtree = tree.retrieve(this.path);
 
         Optional<Match<T>> optMatch = outerPattern.getFirstMatchIfAny(tree);
@@ -52,22 +57,21 @@ public class ChildrenPatternTransformation<T extends Tree<T>> extends UnaryPatte
 
         Match<T> match = optMatch.get();
 
+        Map<TreePath, T> newChildren = new HashMap<>();
         int childrenIndex = 0;
-        for (T child : subtree.getChildren()) {
+        for (T child : subtree.childrenView()) {
 
             Match<T> childMatch =
                     matchPattern.getFirstMatchIfAny(child).get().withMatch(match).get();
 
-            result =
-                    (T)
-                            result.transform(
-                                    this.path.clone().child(childrenIndex),
-                                    this.replacePattern.createTree(childMatch));
+            newChildren.put(
+                    this.path.clone().child(childrenIndex),
+                    this.replacePattern.createTree(childMatch));
 
             childrenIndex++;
         }
 
-        return result;
+        return (T) tree.transformAllPersistently(newChildren);
     }
 
     @Override
@@ -2,8 +2,15 @@ package de.tudortmund.cs.iltis.utils.tree.transformations;
 
 import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import java.util.HashMap;
+import java.util.Map;
 
-/** Transformation that replaces all children using a transformation. */
+/**
+ * Transformation that replaces all children using a transformation.
+ *
+ * <p>The children are replaced by {@link Tree#transformAllPersistently(Map)}, so the result shares
+ * all other subtrees with the given tree (see {@link Transformation}).
+ */
 public class ChildrenTransformation<T extends Tree<T>> implements Transformation<T> {
     protected TreePath path;
     protected Transformation<T> transformation;
@@ -26,7 +33,7 @@ public class ChildrenTransformation<T extends Tree<T>> implements Transformation
     public boolean isApplicable(final T tree) {
         T subtree = tree.retrieve(this.path);
 
-        for (T child : subtree.getChildren()) {
+        for (T child : subtree.childrenView()) {
             if (!transformation.isApplicable(child)) {
                 return false;
             }
@@ -36,22 +43,18 @@ public class ChildrenTransformation<T extends Tree<T>> implements Transformation
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T apply(T tree) {
-        T result = tree;
         T subtree = tree.retrieve(this.path);
 
+        Map<TreePath, T> newChildren = new HashMap<>();
         int childrenIndex = 0;
-        for (T child : subtree.getChildren()) {
-
-            result =
-                    (T)
-                            result.transform(
-                                    path.clone().child(childrenIndex), transformation.apply(child));
-
+        for (T child : subtree.childrenView()) {
+            newChildren.put(path.clone().child(childrenIndex), transformation.apply(child));
             childrenIndex++;
         }
 
-        return result;
+        return (T) tree.transformAllPersistently(newChildren);
     }
 
     @Override
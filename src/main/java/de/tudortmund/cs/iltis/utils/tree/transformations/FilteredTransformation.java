@@ -0,0 +1,80 @@
+package de.tudortmund.cs.iltis.utils.tree.transformations;
+
+import de.tudortmund.cs.iltis.utils.function.SerializableFunction;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Restricts a local transformation to nodes with certain signatures.
+ *
+ * <p>The wrapped transformation has to be local in the sense of {@link
+ * SignatureFilteredTransformation}, e.g. a {@link UnaryPatternTransformation}.
+ *
+ * @param <T> The type of trees to transform
+ * @param <K> The type of signatures
+ */
+public class FilteredTransformation<T extends Tree<T>, K>
+        implements SignatureFilteredTransformation<T, K> {
+
+    private static final long serialVersionUID = 1L;
+
+    protected TreePath path;
+    protected Transformation<T> transformation;
+    protected SerializableFunction<T, K> signature;
+    protected Set<K> applicableSignatures;
+
+    /* Need for serialization */
+    public FilteredTransformation() {}
+
+    public FilteredTransformation(
+            Transformation<T> transformation,
+            SerializableFunction<T, K> signature,
+            Set<K> applicableSignatures) {
+        this(new TreePath(), transformation, signature, applicableSignatures);
+    }
+
+    public FilteredTransformation(
+            TreePath path,
+            Transformation<T> transformation,
+            SerializableFunction<T, K> signature,
+            Set<K> applicableSignatures) {
+        this.path = path;
+        this.transformation = transformation.forPath(path);
+        this.signature = signature;
+        this.applicableSignatures = new HashSet<>(applicableSignatures);
+    }
+
+    @Override
+    public Function<? super T, ? extends K> getSignature() {
+        return signature;
+    }
+
+    @Override
+    public Set<K> getApplicableSignatures() {
+        return applicableSignatures;
+    }
+
+    @Override
+    public boolean isApplicable(T tree) {
+        return applicableSignatures.contains(signature.apply(tree.retrieve(path)))
+                && transformation.isApplicable(tree);
+    }
+
+    @Override
+    public T apply(T tree) {
+        return transformation.apply(tree);
+    }
+
+    @Override
+    public Transformation<T> forPath(TreePath path) {
+        return new FilteredTransformation<>(path, transformation, signature, applicableSignatures);
+    }
+
+    @Override
+    public String toString() {
+        return "FilteredTransformation " + applicableSignatures + " [" + transformation + "]";
+    }
+}
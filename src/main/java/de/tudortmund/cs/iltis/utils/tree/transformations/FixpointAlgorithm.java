@@ -1,10 +1,23 @@
 package de.tudortmund.cs.iltis.utils.tree.transformations;
 
+import de.tudortmund.cs.iltis.utils.tree.ImmutableTreePath;
+import de.tudortmund.cs.iltis.utils.tree.SubtreeIndex;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import java.util.Optional;
 import java.util.Set;
 
-/** Iterates a transformation until a fixpoint is reached. */
+/**
+ * Iterates a transformation until a fixpoint is reached.
+ *
+ * <p>In each step, the transformation is applied at the first path (wrt. the order of paths) it is
+ * applicable to. By default, all applications are searched anew after each step. In incremental
+ * mode, the applicable paths are kept in a worklist instead: after rewriting the subtree at a path
+ * p, only the new subtree at p and the ancestors of p are checked again and the tree is updated by
+ * path copying. This requires the transformation to be local as described in {@link
+ * SignatureFilteredTransformation}. For such transformations, the incremental mode looks up the
+ * applications by their signatures.
+ */
 public class FixpointAlgorithm<T extends Tree<T>> implements Transformation<T> {
 
     public FixpointAlgorithm() {}
@@ -14,8 +27,21 @@ public class FixpointAlgorithm<T extends Tree<T>> implements Transformation<T> {
     }
 
     public FixpointAlgorithm(TreePath path, Transformation<T> transformation) {
+        this(path, transformation, false);
+    }
+
+    /**
+     * Constructs a fixpoint algorithm for the given transformation.
+     *
+     * @param path The path of the subtree to iterate the transformation on.
+     * @param transformation The transformation to iterate.
+     * @param incremental Whether the applications are tracked incrementally, which requires the
+     *     transformation to be local.
+     */
+    public FixpointAlgorithm(TreePath path, Transformation<T> transformation, boolean incremental) {
         this.path = path;
         this.transformation = transformation;
+        this.incremental = incremental;
     }
 
     @Override
@@ -24,7 +50,15 @@ public class FixpointAlgorithm<T extends Tree<T>> implements Transformation<T> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T apply(T tree) {
+        if (this.incremental) {
+            if (this.transformation instanceof SignatureFilteredTransformation)
+                return applyIndexed(
+                        tree, (SignatureFilteredTransformation<T, Object>) this.transformation);
+            return applyIncrementally(tree);
+        }
+
         while (true) {
             Set<TreePath> paths = tree.getAllApplications(this.transformation);
             TreePath firstPath = null;
@@ -39,9 +73,53 @@ public class FixpointAlgorithm<T extends Tree<T>> implements Transformation<T> {
         return tree;
     }
 
+    /**
+     * Iterates a signature filtered transformation in incremental mode. Its applications are looked
+     * up in a {@link SubtreeIndex}, which is updated incrementally after each step, instead of
+     * searching the whole tree again.
+     */
+    protected <K> T applyIndexed(T tree, SignatureFilteredTransformation<T, K> transformation) {
+        SubtreeIndex<T, K> index = new SubtreeIndex<>(tree, transformation.getSignature());
+        Transformation<T> atRoot = transformation.forPath(new TreePath());
+        ImmutableTreePath below = this.path.toImmutable();
+        while (true) {
+            Optional<ImmutableTreePath> firstPath =
+                    index.getFirstApplication(
+                            transformation, transformation.getApplicableSignatures(), below);
+            if (!firstPath.isPresent()) break;
+            T subtree = index.getRoot().retrieve(firstPath.get());
+            index.replace(firstPath.get(), atRoot.apply(subtree));
+        }
+        return index.getRoot();
+    }
+
+    /**
+     * Iterates the transformation using a worklist of the paths it is applicable to. The worklist
+     * is a {@link SubtreeIndex} by applicability, so each rewrite only re-checks the new subtree
+     * and its ancestors.
+     */
+    protected T applyIncrementally(T tree) {
+        SubtreeIndex<T, Boolean> worklist =
+                new SubtreeIndex<>(tree, node -> this.transformation.isApplicable(node));
+        Transformation<T> atRoot = this.transformation.forPath(new TreePath());
+        ImmutableTreePath below = this.path.toImmutable();
+        while (true) {
+            ImmutableTreePath firstPath = worklist.getNodes(true).ceilingKey(below);
+            if (firstPath == null || !(firstPath.equals(below) || firstPath.isDescendantOf(below)))
+                break;
+            T subtree = worklist.getRoot().retrieve(firstPath);
+            worklist.replace(firstPath, atRoot.apply(subtree));
+        }
+        return worklist.getRoot();
+    }
+
     @Override
     public Transformation<T> forPath(TreePath path) {
-        return new FixpointAlgorithm<>(path, transformation);
+        return new FixpointAlgorithm<>(path, transformation, incremental);
+    }
+
+    public boolean isIncremental() {
+        return incremental;
     }
 
     @Override
@@ -51,4 +129,5 @@ public class FixpointAlgorithm<T extends Tree<T>> implements Transformation<T> {
 
     protected TreePath path;
     protected Transformation<T> transformation;
+    protected boolean incremental;
 }
@@ -0,0 +1,176 @@
+package de.tudortmund.cs.iltis.utils.tree.transformations;
+
+import de.tudortmund.cs.iltis.utils.general.LRUHashCache;
+import de.tudortmund.cs.iltis.utils.tree.StructuralHashes;
+import de.tudortmund.cs.iltis.utils.tree.StructuralHashes.Key;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import java.util.Optional;
+
+/**
+ * Caches the results of a transformation, e.g. of a normalisation by {@link FixpointAlgorithm}, for
+ * recently transformed subtrees.
+ *
+ * <p>The results of {@link #apply(Tree)} and {@link #isApplicable(Tree)} are cached in bounded
+ * {@link LRUHashCache}s keyed by the structural hash code of the subtree at the path of this
+ * transformation; a cached result is only used if the subtree equals the cached one. Hence, equal
+ * subtrees share their results, even if they are distinct objects. The hash codes are stored per
+ * node by {@link StructuralHashes}, so the hash code of a subtree is calculated only once and
+ * subtrees shared with previously transformed trees, e.g. by {@link
+ * Tree#transformPersistently(TreePath, Tree)}, are not visited again. The capacity bounds the
+ * number of nodes whose hash codes are stored as well.
+ *
+ * <p>Transformations obtained by {@link #forPath(TreePath)} share the caches, so repeated
+ * normalisation of equal subtrees is answered from the cache. This requires the wrapped
+ * transformation to be local as described in {@link SignatureFilteredTransformation}, and the
+ * transformed trees must not be altered while their results are cached. Cached results are shared
+ * and must not be modified.
+ *
+ * <p>The caches are safe to be used by multiple threads, but are not serialized.
+ */
+public class MemoizingTransformation<T extends Tree<T>> implements Transformation<T> {
+    private static final long serialVersionUID = 1L;
+
+    protected TreePath path;
+    protected Transformation<T> transformation;
+    protected int capacity;
+    protected transient Memo<T> memo;
+
+    /**
+     * Constructs a memoizing transformation.
+     *
+     * @param transformation The local transformation to cache the results of.
+     * @param capacity The maximal number of cached results of both {@link #apply(Tree)} and {@link
+     *     #isApplicable(Tree)}.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public MemoizingTransformation(Transformation<T> transformation, int capacity) {
+        this(
+                new TreePath(),
+                transformation.forPath(new TreePath()),
+                capacity,
+                new Memo<>(capacity));
+    }
+
+    private MemoizingTransformation(
+            TreePath path, Transformation<T> transformation, int capacity, Memo<T> memo) {
+        this.path = path;
+        this.transformation = transformation;
+        this.capacity = capacity;
+        this.memo = memo;
+    }
+
+    @Override
+    public boolean isApplicable(T tree) {
+        T subtree = tree.retrieve(path);
+        Memo<T> memo = getMemo();
+        Key<T> key = memo.hashes.keyOf(subtree);
+        synchronized (memo) {
+            Optional<Boolean> cached = memo.applicability.get(key);
+            if (cached.isPresent()) {
+                memo.hits++;
+                return cached.get();
+            }
+            memo.misses++;
+        }
+
+        boolean applicable = transformation.isApplicable(subtree);
+        synchronized (memo) {
+            memo.applicability.put(key, applicable);
+        }
+        return applicable;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T apply(T tree) {
+        T subtree = tree.retrieve(path);
+        Memo<T> memo = getMemo();
+        Key<T> key = memo.hashes.keyOf(subtree);
+        Optional<T> cached;
+        synchronized (memo) {
+            cached = memo.results.get(key);
+            if (cached.isPresent()) memo.hits++;
+            else memo.misses++;
+        }
+
+        T result;
+        if (cached.isPresent()) {
+            result = cached.get();
+        } else {
+            result = transformation.apply(subtree);
+            synchronized (memo) {
+                memo.results.put(key, result);
+            }
+        }
+        return (T) tree.transformPersistently(path, result);
+    }
+
+    @Override
+    public Transformation<T> forPath(TreePath path) {
+        if (path.equals(this.path)) return this;
+        return new MemoizingTransformation<>(path, transformation, capacity, getMemo());
+    }
+
+    /** Returns the number of calls answered from the cache. */
+    public long getHits() {
+        Memo<T> memo = getMemo();
+        synchronized (memo) {
+            return memo.hits;
+        }
+    }
+
+    /** Returns the number of calls not answered from the cache. */
+    public long getMisses() {
+        Memo<T> memo = getMemo();
+        synchronized (memo) {
+            return memo.misses;
+        }
+    }
+
+    /** Removes all cached results and resets the statistics. */
+    public void clear() {
+        Memo<T> memo = getMemo();
+        synchronized (memo) {
+            memo.results = new LRUHashCache<>(capacity);
+            memo.applicability = new LRUHashCache<>(capacity);
+            memo.hashes.clear();
+            memo.hits = 0;
+            memo.misses = 0;
+        }
+    }
+
+    public Transformation<T> getTransformation() {
+        return transformation;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizingTransformation [" + transformation + "]";
+    }
+
+    private synchronized Memo<T> getMemo() {
+        // the caches are not serialized
+        if (memo == null) memo = new Memo<>(capacity);
+        return memo;
+    }
+
+    /** The caches and statistics shared by all paths. */
+    private static class Memo<T extends Tree<T>> {
+        private LRUHashCache<Key<T>, T> results;
+        private LRUHashCache<Key<T>, Boolean> applicability;
+        private final StructuralHashes<T> hashes;
+        private long hits;
+        private long misses;
+
+        private Memo(int capacity) {
+            this.results = new LRUHashCache<>(capacity);
+            this.applicability = new LRUHashCache<>(capacity);
+            this.hashes = new StructuralHashes<>(capacity);
+        }
+    }
+
+    /** For serialization */
+    @SuppressWarnings("unused")
+    private MemoizingTransformation() {}
+}
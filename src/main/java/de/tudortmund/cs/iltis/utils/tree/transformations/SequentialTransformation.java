@@ -5,7 +5,12 @@ import de.tudortmund.cs.iltis.utils.tree.TreePath;
 import java.util.ArrayList;
 import java.util.List;
 
-/** Transformation that applies a sequence of other transformations in the specified order. */
+/**
+ * Transformation that applies a sequence of other transformations in the specified order.
+ *
+ * <p>The transformed subtree is inserted by {@link Tree#transformPersistently(TreePath, Tree)}, so
+ * the result shares all other subtrees with the given tree (see {@link Transformation}).
+ */
 public class SequentialTransformation<T extends Tree<T>> implements Transformation<T> {
     protected TreePath path;
     protected List<Transformation<T>> transformations;
@@ -55,7 +60,7 @@ public class SequentialTransformation<T extends Tree<T>> implements Transformati
             }
         }
 
-        return (T) tree.transform(this.path, subtree);
+        return (T) tree.transformPersistently(this.path, subtree);
     }
 
     @Override
@@ -0,0 +1,32 @@
+package de.tudortmund.cs.iltis.utils.tree.transformations;
+
+import de.tudortmund.cs.iltis.utils.tree.SubtreeIndex;
+import de.tudortmund.cs.iltis.utils.tree.Tree;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A transformation, which names the nodes it may be applicable to by a cheap signature, e.g. the
+ * label or the arity of a node.
+ *
+ * <p>{@link #isApplicable(Tree)} has to return {@code false} for all nodes whose signature is not
+ * contained in {@link #getApplicableSignatures()}. Hence, a {@link SubtreeIndex} can find all
+ * applications by checking only the nodes with an applicable signature.
+ *
+ * <p>Moreover, such a transformation has to be <em>local</em>: whether it is applicable to a node
+ * only depends on the subtree of the node, and applying it for a path p to a tree t replaces the
+ * subtree s at p by the result of applying it for the empty path to s, leaving the rest of t
+ * unchanged. This allows {@link FixpointAlgorithm} and {@link TargetedIterationAlgorithm} to apply
+ * it through path copying and to update their index incrementally.
+ *
+ * @param <T> The type of trees to transform
+ * @param <K> The type of signatures
+ */
+public interface SignatureFilteredTransformation<T extends Tree<T>, K> extends Transformation<T> {
+
+    /** Returns the function calculating the signature of a node. */
+    Function<? super T, ? extends K> getSignature();
+
+    /** Returns the signatures of all nodes this transformation may be applicable to. */
+    Set<K> getApplicableSignatures();
+}
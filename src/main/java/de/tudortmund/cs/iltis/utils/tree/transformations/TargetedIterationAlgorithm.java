@@ -1,8 +1,11 @@
 package de.tudortmund.cs.iltis.utils.tree.transformations;
 
+import de.tudortmund.cs.iltis.utils.tree.ImmutableTreePath;
+import de.tudortmund.cs.iltis.utils.tree.SubtreeIndex;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.TreePath;
 import de.tudortmund.cs.iltis.utils.tree.pattern.TreePattern;
+import java.util.Optional;
 import java.util.Set;
 
 /** Iterates a transformation until a target pattern is reached. */
@@ -32,7 +35,12 @@ public class TargetedIterationAlgorithm<T extends Tree<T>> implements Transforma
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T apply(T tree) {
+        if (this.transformation instanceof SignatureFilteredTransformation)
+            return applyIndexed(
+                    tree, (SignatureFilteredTransformation<T, Object>) this.transformation);
+
         while (true) {
             if (this.targetPattern.matches(tree)) {
                 return tree;
@@ -52,6 +60,27 @@ public class TargetedIterationAlgorithm<T extends Tree<T>> implements Transforma
         return tree;
     }
 
+    /**
+     * Iterates a signature filtered transformation. Its applications are looked up in a {@link
+     * SubtreeIndex}, which is updated incrementally after each step, instead of searching the whole
+     * tree again.
+     */
+    protected <K> T applyIndexed(T tree, SignatureFilteredTransformation<T, K> transformation) {
+        SubtreeIndex<T, K> index = new SubtreeIndex<>(tree, transformation.getSignature());
+        Transformation<T> atRoot = transformation.forPath(new TreePath());
+        ImmutableTreePath below = this.path.toImmutable();
+        while (true) {
+            if (this.targetPattern.matches(index.getRoot())) break;
+            Optional<ImmutableTreePath> firstPath =
+                    index.getFirstApplication(
+                            transformation, transformation.getApplicableSignatures(), below);
+            if (!firstPath.isPresent()) break;
+            T subtree = index.getRoot().retrieve(firstPath.get());
+            index.replace(firstPath.get(), atRoot.apply(subtree));
+        }
+        return index.getRoot();
+    }
+
     @Override
     public Transformation<T> forPath(TreePath path) {
         return new TargetedIterationAlgorithm<>(path, targetPattern, transformation);
@@ -4,6 +4,15 @@ import de.tudortmund.cs.iltis.utils.tree.Tree;
 import de.tudortmund.cs.iltis.utils.tree.TreePath;
 import java.io.Serializable;
 
+/**
+ * A transformation of trees.
+ *
+ * <p>{@link #apply(Tree)} does not alter the given tree, but the returned tree may share subtrees
+ * with it: e.g. trees created by patterns contain the matched subtrees, and transformations
+ * rewriting subtrees copy only the nodes above them (see {@link
+ * Tree#transformPersistently(TreePath, Tree)}). Hence, neither tree should be altered afterwards;
+ * clone the result if it is to be altered.
+ */
 public interface Transformation<T extends Tree<T>> extends Serializable {
     boolean isApplicable(final T formula);
 
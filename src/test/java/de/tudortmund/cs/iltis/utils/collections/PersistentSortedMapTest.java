@@ -0,0 +1,49 @@
+package de.tudortmund.cs.iltis.utils.collections;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class PersistentSortedMapTest {
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(42);
+        PersistentSortedMap<Integer, Integer> map = new PersistentSortedMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(200);
+            if (random.nextInt(3) == 0) assertEquals(expected.remove(key), map.remove(key));
+            else assertEquals(expected.put(key, i), map.put(key, i));
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        assertEquals(expected.toString(), map.toString());
+    }
+
+    @Test
+    public void testForksAreIndependent() {
+        PersistentSortedMap<String, Integer> map = new PersistentSortedMap<>();
+        map.put("b", 2);
+        map.put("a", 1);
+
+        PersistentSortedMap<String, Integer> fork = map.fork();
+        fork.put("c", 3);
+        fork.put("a", 10);
+        map.remove("b");
+
+        assertEquals(1, map.size());
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertFalse(map.containsKey("c"));
+        assertEquals(3, fork.size());
+        assertEquals(Integer.valueOf(10), fork.get("a"));
+        assertEquals(Integer.valueOf(2), fork.get("b"));
+    }
+}
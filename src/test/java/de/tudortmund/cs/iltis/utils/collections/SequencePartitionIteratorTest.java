@@ -185,6 +185,45 @@ public class SequencePartitionIteratorTest {
         assertFalse(it.hasNext());
     }
 
+    @Test
+    public void testBoundedPartitions() {
+        List<Integer> five = newList(1, 2, 3, 4, 5);
+        SequencePartitionIterator<Integer> it =
+                new SequencePartitionIterator<Integer>(
+                        five, new int[] {1, 0, 2}, new int[] {1, Integer.MAX_VALUE, 3});
+        List<List<Integer>> partition;
+
+        assertTrue(it.hasNext());
+        partition = it.next();
+        assertTrue(listEquals(newList(1), partition.get(0)));
+        assertTrue(listEquals(newList(2, 3), partition.get(1)));
+        assertTrue(listEquals(newList(4, 5), partition.get(2)));
+
+        assertTrue(it.hasNext());
+        partition = it.next();
+        assertTrue(listEquals(newList(1), partition.get(0)));
+        assertTrue(listEquals(newList(2), partition.get(1)));
+        assertTrue(listEquals(newList(3, 4, 5), partition.get(2)));
+
+        assertFalse(it.hasNext());
+
+        it = new SequencePartitionIterator<Integer>(five, new int[] {2, 2}, new int[] {2, 2});
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testUnboundedPartitionsAreCopies() {
+        SequencePartitionIterator<Integer> it = new SequencePartitionIterator<Integer>(three, 2);
+        List<List<Integer>> partition = it.next();
+        assertTrue(partition.get(0) instanceof ArrayList);
+        partition.get(0).add(4);
+        assertTrue(listEquals(newList(1, 2, 3, 4), partition.get(0)));
+
+        partition = it.next();
+        assertTrue(listEquals(newList(1, 2), partition.get(0)));
+        assertTrue(listEquals(newList(3), partition.get(1)));
+    }
+
     private boolean listEquals(List<Integer> exp, List<Integer> act) {
         if (exp.size() != act.size()) return false;
         for (int i = 0; i < exp.size(); i++) if (exp.get(i) != act.get(i)) return false;
@@ -5,16 +5,28 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import de.tudortmund.cs.iltis.utils.IndexedSymbol;
+import de.tudortmund.cs.iltis.utils.collections.ImmutablePair;
 import de.tudortmund.cs.iltis.utils.term.Term;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.pattern.AlternativePattern;
 import de.tudortmund.cs.iltis.utils.tree.pattern.AnyPattern;
 import de.tudortmund.cs.iltis.utils.tree.pattern.ChildrenPattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.ContainsDescendantPattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.FixedArityForestPattern;
 import de.tudortmund.cs.iltis.utils.tree.pattern.FlexibleArityForestPattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.MultiConstraintPattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.PatternAnalysis;
 import de.tudortmund.cs.iltis.utils.tree.pattern.RepeatForestPattern;
 import de.tudortmund.cs.iltis.utils.tree.pattern.TreePattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.TreePatternIndex;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 /** Test for term patterns. */
@@ -83,6 +95,57 @@ public class PatternTest {
         checkNoMatch(pattern, term5);
     }
 
+    @Test
+    public void AnyNameWithoutName() {
+        IndexedSymbol y = new IndexedSymbol("Y");
+        TreePattern<StringTerm> pattern =
+                new ChildrenPattern<>(
+                        new FixedArityForestPattern<>(
+                                new AnyNamePattern<StringTerm, String>(y),
+                                new AnyNamePattern<StringTerm, String>(y)));
+
+        StringTerm term1 = new StringTerm("C", 1);
+        term1.addChild(new StringTerm("D", 2));
+        term1.addChild(new StringTerm("E", 3));
+        StringTerm term2 = new StringTerm("C", 4);
+        term2.addChild(new StringTerm("D", 5));
+        term2.addChild(new StringTerm("D", 6));
+
+        assertFalse(pattern.matches(term1));
+        assertTrue(pattern.matches(term2));
+    }
+
+    @Test
+    public void AnyNameInConjunction() {
+        AnyNamePattern<StringTerm, String> anyName = new AnyNamePattern<>(new IndexedSymbol("Y"));
+        TreePattern<StringTerm> pattern =
+                new MultiConstraintPattern<>(
+                        new AnyPattern<StringTerm>(new IndexedSymbol("X")), anyName);
+
+        StringTerm term = new StringTerm("Q", 1);
+        Set<Match<StringTerm>> matches = pattern.getAllMatches(term);
+        assertEquals(1, matches.size());
+        Match<StringTerm> match = matches.iterator().next();
+        assertEquals(Optional.of(term), match.getDefinedTree(new IndexedSymbol("X")));
+        assertEquals(Optional.of(term), match.getDefinedTree(new IndexedSymbol("anyname@Y")));
+        assertEquals("Q", anyName.createName(match));
+    }
+
+    @Test
+    public void AnyNameInDescendant() {
+        AnyNamePattern<StringTerm, String> anyName = new AnyNamePattern<>(new IndexedSymbol("Y"));
+        TreePattern<StringTerm> pattern = new ContainsDescendantPattern<>(anyName);
+
+        StringTerm term = new StringTerm("Q", 1);
+        Optional<Match<StringTerm>> match = pattern.getFirstMatchIfAny(term);
+        assertTrue(match.isPresent());
+        assertEquals(Optional.of(term), match.get().getDefinedTree(new IndexedSymbol("anyname@Y")));
+        assertEquals("Q", anyName.createName(match.get()));
+
+        term.addChild(new StringTerm("R", 2));
+        assertEquals(2, pattern.getAllMatches(term).size());
+    }
+
     @Test
     public void ExactName() {
         IndexedSymbol a = new IndexedSymbol("a");
@@ -114,6 +177,118 @@ public class PatternTest {
         checkNoMatch(pattern, term5);
     }
 
+    @Test
+    public void PatternIndex() {
+        TreePattern<StringTerm> aWithB =
+                new MultiConstraintPattern<>(
+                        new ExactNamePattern<StringTerm, String>("A"),
+                        new ChildrenPattern<>(
+                                new FixedArityForestPattern<>(
+                                        new ExactNamePattern<StringTerm, String>("B"),
+                                        new AnyPattern<StringTerm>())));
+        TreePattern<StringTerm> b = new ExactNamePattern<>("B");
+        TreePattern<StringTerm> any =
+                new ChildrenPattern<>(new RepeatForestPattern<>(new AnyPattern<StringTerm>()));
+        TreePattern<StringTerm> aOrC =
+                new AlternativePattern<>(
+                        new ExactNamePattern<StringTerm, String>("A"),
+                        new ExactNamePattern<StringTerm, String>("C"));
+        TreePattern<StringTerm> none =
+                new MultiConstraintPattern<>(
+                        new ExactNamePattern<StringTerm, String>("A"),
+                        new ExactNamePattern<StringTerm, String>("B"));
+        TreePatternIndex<StringTerm> index =
+                new TreePatternIndex<>(Arrays.asList(aWithB, b, any, aOrC, none));
+
+        StringTerm term1 = new StringTerm("A", 1);
+        term1.addChild(new StringTerm("B", 2));
+        term1.addChild(new StringTerm("C", 3));
+        StringTerm term2 = new StringTerm("A", 4);
+        term2.addChild(new StringTerm("C", 5));
+        term2.addChild(new StringTerm("C", 6));
+        StringTerm term3 = new StringTerm("B", 7);
+
+        assertEquals(Arrays.asList(aWithB, any, aOrC), index.getCandidates(term1));
+        assertEquals(Arrays.asList(any, aOrC), index.getCandidates(term2));
+        assertEquals(Arrays.asList(b, any), index.getCandidates(term3));
+        assertEquals(
+                Arrays.asList(aWithB, any, aOrC),
+                index.getFirstMatches(term1).stream()
+                        .map(ImmutablePair::first)
+                        .collect(Collectors.toList()));
+        assertEquals(5, index.size());
+
+        for (StringTerm term : Arrays.asList(term1, term2, term3)) {
+            List<TreePattern<StringTerm>> matching =
+                    index.getAllMatches(term).stream()
+                            .map(ImmutablePair::first)
+                            .collect(Collectors.toList());
+            for (TreePattern<StringTerm> pattern : index.getPatterns())
+                assertEquals(pattern.matches(term), matching.contains(pattern));
+        }
+
+        // equal patterns added separately get separate results
+        index.add(new ExactNamePattern<StringTerm, String>("B"));
+        assertEquals(
+                2,
+                index.getFirstMatches(term3).stream()
+                        .map(ImmutablePair::first)
+                        .filter(b::equals)
+                        .count());
+    }
+
+    @Test
+    public void StaticAnalysis() {
+        TreePattern<StringTerm> pattern =
+                new MultiConstraintPattern<>(
+                        new ExactNamePattern<StringTerm, String>("A"),
+                        new ChildrenPattern<>(
+                                new FlexibleArityForestPattern<>(
+                                        new ExactNamePattern<StringTerm, String>("B"),
+                                        new ContainsDescendantPattern<>(
+                                                new ExactNamePattern<StringTerm, String>("C")))));
+        PatternAnalysis analysis = pattern.getAnalysis();
+        assertEquals(1, analysis.getMinForestWidth());
+        assertEquals(1, analysis.getMaxForestWidth());
+        assertEquals(Optional.of(Collections.singleton("A")), analysis.getRootNames());
+        assertEquals(2, analysis.getMinArity());
+        assertEquals(Integer.MAX_VALUE, analysis.getMaxArity());
+        assertEquals(1, analysis.getMinDepth());
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), analysis.getRequiredSymbols());
+
+        StringTerm term1 = new StringTerm("A", 1);
+        term1.addChild(new StringTerm("B", 2));
+        term1.addChild(new StringTerm("C", 3));
+        StringTerm term2 = new StringTerm("B", 4);
+        term2.addChild(new StringTerm("C", 5));
+        term2.addChild(new StringTerm("C", 6));
+        StringTerm term3 = new StringTerm("A", 7);
+        term3.addChild(new StringTerm("B", 8));
+        assertTrue(analysis.admits(term1));
+        assertFalse(analysis.admits(term2));
+        assertFalse(analysis.admits(term3));
+        assertFalse(analysis.admits(Arrays.asList(term1, term1)));
+        assertTrue(pattern.matches(term1));
+        assertFalse(pattern.matches(term2));
+        assertFalse(pattern.matches(term3));
+
+        TreePattern<StringTerm> alternative =
+                new AlternativePattern<>(
+                        pattern,
+                        new MultiConstraintPattern<>(
+                                new ExactNamePattern<StringTerm, String>("B"),
+                                new ContainsDescendantPattern<>(
+                                        new ExactNamePattern<StringTerm, String>("C"))));
+        analysis = alternative.getAnalysis();
+        assertEquals(Optional.of(new HashSet<>(Arrays.asList("A", "B"))), analysis.getRootNames());
+        assertEquals(0, analysis.getMinDepth());
+        assertEquals(new HashSet<>(Arrays.asList("B", "C")), analysis.getRequiredSymbols());
+        assertTrue(
+                new MultiConstraintPattern<>(pattern, alternative.getChild(1))
+                        .getAnalysis()
+                        .isUnsatisfiable());
+    }
+
     protected <MatchedT extends Tree<MatchedT>> void checkMatch(
             TreePattern<MatchedT> pattern, MatchedT tree) {
         Optional<Match<MatchedT>> match = pattern.getFirstMatchIfAny(tree);
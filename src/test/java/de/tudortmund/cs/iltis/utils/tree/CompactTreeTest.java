@@ -0,0 +1,70 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import de.tudortmund.cs.iltis.utils.io.writer.tree.CompactTreeWriter;
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTreeWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CompactTreeTest {
+
+    private static StringTree example() {
+        return new StringTree(
+                "a",
+                new StringTree("b", new StringTree("c"), new StringTree("d")),
+                new StringTree("e", new StringTree("c")));
+    }
+
+    @Test
+    public void structure() {
+        CompactTree<String> tree = CompactTree.of(example(), StringTree::getLabel);
+
+        assertEquals(6, tree.size());
+        List<String> labels = new ArrayList<>();
+        for (int node = 0; node < tree.size(); node++) labels.add(tree.getLabel(node));
+        assertEquals(List.of("a", "b", "c", "d", "e", "c"), labels);
+
+        assertEquals(CompactTree.NONE, tree.getParent(0));
+        assertEquals(1, tree.getFirstChild(0));
+        assertEquals(4, tree.getNextSibling(1));
+        assertEquals(CompactTree.NONE, tree.getNextSibling(4));
+        assertEquals(4, tree.getParent(5));
+        assertEquals(2, tree.getNumberOfChildren(1));
+        assertTrue(tree.isLeaf(3));
+        assertEquals(4, tree.getSubtreeEnd(1));
+        assertEquals(6, tree.getSubtreeEnd(4));
+    }
+
+    @Test
+    public void conversion() {
+        CompactTree<String> tree = CompactTree.of(example(), StringTree::getLabel);
+
+        assertEquals(example(), tree.<StringTree>toTree(StringTree::new));
+        assertEquals(example().getChild(1), tree.<StringTree>toTree(4, StringTree::new));
+    }
+
+    @Test
+    public void traversalsAndQueries() {
+        CompactTree<String> tree = CompactTree.of(example(), StringTree::getLabel);
+
+        assertEquals("a(b(c,d),e(c))", new CompactTreeWriter<String>().write(tree));
+        TraversalStrategy<Integer, String> writer =
+                (node, childrenOutput) ->
+                        tree.getLabel(node) + "(" + String.join(",", childrenOutput) + ")";
+        assertEquals(new StringTreeWriter().write(example()), tree.traverse(writer));
+
+        int size =
+                tree.fold(label -> 1, (label, sizes) -> 1 + sizes.stream().mapToInt(x -> x).sum());
+        assertEquals(6, size);
+
+        assertTrue(tree.containsLabel("e"));
+        assertFalse(tree.containsLabel("x"));
+        assertArrayEquals(new int[] {2, 5}, tree.getNodesWithLabel("c"));
+    }
+}
@@ -0,0 +1,70 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ImmutableTreePathTest {
+
+    @Test
+    public void conversion() {
+        TreePath path = new TreePath("-0-2-1");
+        ImmutableTreePath immutablePath = path.toImmutable();
+
+        assertEquals(ImmutableTreePath.of(0, 2, 1), immutablePath);
+        assertEquals(ImmutableTreePath.parse("-0-2-1"), immutablePath);
+        assertEquals(path, immutablePath.toTreePath());
+        assertEquals(path, new TreePath(immutablePath));
+        assertEquals(path.toString(), immutablePath.toString());
+        assertEquals("", ImmutableTreePath.ROOT.toString());
+    }
+
+    @Test
+    public void sharedPrefixes() {
+        ImmutableTreePath path = ImmutableTreePath.of(3, 1, 4, 1);
+
+        assertEquals(ImmutableTreePath.of(3, 1, 4), path.getParent());
+        assertEquals(path.getParent().hashCode(), ImmutableTreePath.of(3, 1, 4).hashCode());
+        assertEquals(ImmutableTreePath.of(3, 1), path.getPathUpTo(2));
+        assertEquals(ImmutableTreePath.of(4, 1), path.getPathFrom(2));
+        assertEquals(path, path.getPathUpTo(2).concatenate(path.getPathFrom(2)));
+        assertEquals(ImmutableTreePath.of(3, 1, 5), path.getParent().sibling(5));
+        assertEquals(ImmutableTreePath.of(3, 1, 4, 1, 0), path.child(0));
+        assertEquals(
+                ImmutableTreePath.of(3, 1),
+                path.getLowestCommonAncestor(ImmutableTreePath.of(3, 1, 5, 9)));
+        assertEquals(ImmutableTreePath.ROOT, path.getPathUpTo(0));
+    }
+
+    @Test
+    public void relations() {
+        ImmutableTreePath path = ImmutableTreePath.of(0, 1);
+
+        assertTrue(path.isAncestorOf(ImmutableTreePath.of(0, 1, 2)));
+        assertTrue(path.isParentOf(ImmutableTreePath.of(0, 1, 2)));
+        assertFalse(path.isParentOf(ImmutableTreePath.of(0, 1, 2, 0)));
+        assertFalse(path.isAncestorOf(path));
+        assertTrue(path.isDescendantOf(ImmutableTreePath.ROOT));
+        assertTrue(path.isChildOf(ImmutableTreePath.of(0)));
+        assertTrue(path.isSiblingOf(ImmutableTreePath.of(0, 3)));
+        assertFalse(path.isSiblingOf(path.getParent()));
+        assertFalse(ImmutableTreePath.ROOT.isSiblingOf(ImmutableTreePath.ROOT));
+    }
+
+    @Test
+    public void sameOrderAsTreePath() {
+        List<TreePath> paths = new ArrayList<>();
+        for (String description : new String[] {"", "-0", "-1", "-0-0", "-0-1", "-1-0", "-0-0-2"})
+            paths.add(new TreePath(description));
+
+        for (TreePath first : paths)
+            for (TreePath second : paths)
+                assertEquals(
+                        Integer.signum(first.compareTo(second)),
+                        Integer.signum(first.toImmutable().compareTo(second.toImmutable())));
+    }
+}
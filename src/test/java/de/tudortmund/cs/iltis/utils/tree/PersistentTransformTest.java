@@ -0,0 +1,135 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class PersistentTransformTest {
+
+    private static StringTree example() {
+        return new StringTree(
+                "a",
+                new StringTree("b", new StringTree("c"), new StringTree("d")),
+                new StringTree("e", new StringTree("f")));
+    }
+
+    @Test
+    public void transformCopiesOnlyThePath() {
+        StringTree tree = example();
+        StringTree original = example();
+
+        Tree<StringTree> result =
+                tree.transformPersistently(new TreePath().child(0).child(1), new StringTree("x"));
+
+        assertEquals(original, tree);
+        assertEquals(
+                new StringTree(
+                        "a",
+                        new StringTree("b", new StringTree("c"), new StringTree("x")),
+                        new StringTree("e", new StringTree("f"))),
+                result);
+        assertEquals(tree.transform(new TreePath().child(0).child(1), new StringTree("x")), result);
+
+        assertNotSame(tree, result);
+        assertNotSame(tree.getChild(0), result.getChild(0));
+        assertSame(tree.getChild(0).getChild(0), result.getChild(0).getChild(0));
+        assertSame(tree.getChild(1), result.getChild(1));
+    }
+
+    @Test
+    public void transformClonesTheWholeTree() {
+        StringTree tree = example();
+        Tree<StringTree> result =
+                tree.transform(new TreePath().child(0).child(1), new StringTree("x"));
+
+        assertNotSame(tree.getChild(1), result.getChild(1));
+        result.getChild(1).addChild(new StringTree("y"));
+        assertEquals(example(), tree);
+    }
+
+    @Test
+    public void transformAtRoot() {
+        StringTree tree = example();
+        StringTree replacement = new StringTree("x");
+        assertSame(replacement, tree.transformPersistently(new TreePath(), replacement));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transformAtInvalidPath() {
+        example().transformPersistently(new TreePath().child(1).child(1), new StringTree("x"));
+    }
+
+    @Test
+    public void transformAllCopiesCommonAncestorsOnce() {
+        StringTree tree = example();
+        StringTree original = example();
+
+        Map<TreePath, StringTree> replacements = new HashMap<>();
+        replacements.put(new TreePath().child(0).child(1), new StringTree("x"));
+        replacements.put(new TreePath().child(0).child(0), new StringTree("y"));
+        Tree<StringTree> result = tree.transformAllPersistently(replacements);
+
+        assertEquals(original, tree);
+        assertEquals(
+                new StringTree(
+                        "a",
+                        new StringTree("b", new StringTree("y"), new StringTree("x")),
+                        new StringTree("e", new StringTree("f"))),
+                result);
+        assertSame(tree.getChild(1), result.getChild(1));
+        assertSame(tree, tree.transformAllPersistently(new HashMap<>()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transformAllOverlapping() {
+        Map<TreePath, StringTree> replacements = new HashMap<>();
+        replacements.put(new TreePath().child(0), new StringTree("x"));
+        replacements.put(new TreePath().child(0).child(0), new StringTree("y"));
+        example().transformAllPersistently(replacements);
+    }
+
+    @Test
+    public void shallowCloneSharesOnlyTheChildren() {
+        StringTree tree = example();
+        StringTree clone = tree.shallowClone();
+
+        assertEquals(tree, clone);
+        assertNotSame(tree, clone);
+        assertSame(tree.getChild(0), clone.getChild(0));
+
+        clone.addChild(new StringTree("x"));
+        assertEquals(2, tree.getNumberOfChildren());
+        tree.setChild(0, new StringTree("y"));
+        assertEquals("b", clone.getChild(0).getLabel());
+    }
+
+    @Test
+    public void shallowCloneKeepsTheOrderOfClone() {
+        StringTree tree =
+                new StringTree("a", new StringTree("c"), new StringTree("b")) {
+                    @Override
+                    public StringTree clone() {
+                        List<StringTree> children = getClonedChildren();
+                        children.sort(null);
+                        return new StringTree(label, children);
+                    }
+                };
+
+        StringTree clone = tree.shallowClone();
+        assertEquals(Arrays.asList("c", "b"), labels(tree.childrenView()));
+        assertEquals(Arrays.asList("b", "c"), labels(clone.childrenView()));
+        assertEquals(labels(tree.clone().childrenView()), labels(clone.childrenView()));
+    }
+
+    private static List<String> labels(List<StringTree> trees) {
+        return trees.stream().map(StringTree::getLabel).collect(Collectors.toList());
+    }
+}
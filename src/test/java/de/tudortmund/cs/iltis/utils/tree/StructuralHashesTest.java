@@ -0,0 +1,59 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import org.junit.Test;
+
+public class StructuralHashesTest {
+
+    private static StringTree example() {
+        return new StringTree(
+                "a",
+                new StringTree("b", new StringTree("c"), new StringTree("d")),
+                new StringTree("e", new StringTree("f")));
+    }
+
+    @Test
+    public void equalTreesHaveEqualKeys() {
+        StructuralHashes<StringTree> hashes = new StructuralHashes<>();
+        StringTree tree = example();
+        assertEquals(hashes.hashCodeOf(tree), hashes.hashCodeOf(example()));
+        assertEquals(hashes.keyOf(tree), hashes.keyOf(example()));
+        assertEquals(hashes.keyOf(tree.getChild(1)), hashes.keyOf(example().getChild(1)));
+
+        StringTree swapped =
+                new StringTree(
+                        "a",
+                        new StringTree("b", new StringTree("d"), new StringTree("c")),
+                        new StringTree("e", new StringTree("f")));
+        assertNotEquals(hashes.keyOf(tree), hashes.keyOf(swapped));
+    }
+
+    @Test
+    public void hashCodesDoNotDependOnStoredNodes() {
+        StructuralHashes<StringTree> hashes = new StructuralHashes<>();
+        StringTree tree = example();
+        int hashCode = hashes.hashCodeOf(tree);
+
+        Tree<StringTree> transformed =
+                tree.transformPersistently(new TreePath().child(0).child(1), new StringTree("d"));
+        assertEquals(hashCode, hashes.hashCodeOf((StringTree) transformed));
+
+        // a bounded instance still calculates the hash codes of evicted nodes
+        StructuralHashes<StringTree> bounded = new StructuralHashes<>(1);
+        assertEquals(hashCode, bounded.hashCodeOf(tree));
+        assertEquals(hashes.hashCodeOf(tree.getChild(0)), bounded.hashCodeOf(tree.getChild(0)));
+    }
+
+    @Test
+    public void deepTreesAreHashedWithoutRecursion() {
+        StringTree tree = new StringTree("a");
+        for (int i = 0; i < 100000; i++) tree = new StringTree("a", tree);
+
+        StructuralHashes<StringTree> hashes = new StructuralHashes<>();
+        assertEquals(hashes.keyOf(tree), hashes.keyOf(tree));
+        assertNotEquals(hashes.hashCodeOf(tree), hashes.hashCodeOf(tree.getChild(0)));
+    }
+}
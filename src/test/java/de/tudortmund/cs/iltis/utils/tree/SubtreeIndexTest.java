@@ -0,0 +1,148 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import de.tudortmund.cs.iltis.utils.tree.transformations.FilteredTransformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.FixpointAlgorithm;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class SubtreeIndexTest {
+
+    /** Replaces a node labelled "a" by a node labelled "b" with the same children. */
+    private static class RenameTransformation implements Transformation<StringTree> {
+        private final TreePath path;
+
+        RenameTransformation(TreePath path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean isApplicable(StringTree tree) {
+            return tree.retrieve(path).getLabel().equals("a");
+        }
+
+        @Override
+        public StringTree apply(StringTree tree) {
+            StringTree node = tree.retrieve(path);
+            return (StringTree)
+                    tree.transformPersistently(path, new StringTree("b", node.getChildren()));
+        }
+
+        @Override
+        public Transformation<StringTree> forPath(TreePath path) {
+            return new RenameTransformation(path);
+        }
+    }
+
+    private static StringTree example() {
+        return new StringTree(
+                "a",
+                new StringTree("c", new StringTree("a"), new StringTree("d")),
+                new StringTree("a", new StringTree("a", new StringTree("c"))));
+    }
+
+    private static FilteredTransformation<StringTree, String> rename() {
+        return new FilteredTransformation<>(
+                new RenameTransformation(new TreePath()),
+                StringTree::getLabel,
+                Collections.singleton("a"));
+    }
+
+    @Test
+    public void allApplications() {
+        StringTree tree = example();
+        SubtreeIndex<StringTree, String> index = new SubtreeIndex<>(tree, StringTree::getLabel);
+        assertEquals(tree.getAllApplications(rename()), index.getAllApplications(rename()));
+        assertEquals(
+                tree.getAllApplications(new RenameTransformation(new TreePath())),
+                index.getAllApplications(rename()));
+        assertEquals(4, index.getNodes("a").size());
+    }
+
+    @Test
+    public void replaceUpdatesIndex() {
+        StringTree tree = example();
+        StringTree original = example();
+        SubtreeIndex<StringTree, String> index = new SubtreeIndex<>(tree, StringTree::getLabel);
+
+        ImmutableTreePath path = ImmutableTreePath.of(1);
+        StringTree replacement = new StringTree("x", new StringTree("a"), new StringTree("c"));
+        index.replace(path, replacement);
+
+        assertEquals(original, tree);
+        assertSame(replacement, index.getRoot().retrieve(path));
+        SubtreeIndex<StringTree, String> rebuilt =
+                new SubtreeIndex<>(index.getRoot(), StringTree::getLabel);
+        for (String label : Arrays.asList("a", "c", "d", "x"))
+            assertEquals(rebuilt.getNodes(label), index.getNodes(label));
+
+        index.replace(ImmutableTreePath.ROOT, new StringTree("y"));
+        assertEquals(1, index.getNodes("y").size());
+        assertFalse(index.getNodes("a").containsKey(ImmutableTreePath.ROOT));
+    }
+
+    @Test
+    public void replaceRemovesByIndexedSignatures() {
+        // a new signature on every call, so removed nodes cannot be found by recalculation
+        int[] calls = new int[1];
+        SubtreeIndex<StringTree, Integer> index = new SubtreeIndex<>(example(), node -> calls[0]++);
+        assertEquals(7, calls[0]);
+
+        index.replace(ImmutableTreePath.of(1), new StringTree("x"));
+        assertEquals(9, calls[0]);
+        assertEquals(ImmutableTreePath.ROOT, index.getNodes(7).firstKey());
+        assertEquals(ImmutableTreePath.of(1), index.getNodes(8).firstKey());
+        for (int signature = 0; signature < 7; signature++)
+            assertEquals(signature < 4 ? 0 : 1, index.getNodes(signature).size());
+    }
+
+    @Test
+    public void firstApplicationBelowPath() {
+        SubtreeIndex<StringTree, String> index =
+                new SubtreeIndex<>(example(), StringTree::getLabel);
+        assertEquals(
+                ImmutableTreePath.of(0, 0),
+                index.getFirstApplication(
+                                rename(), Collections.singleton("a"), ImmutableTreePath.of(0))
+                        .get());
+        assertFalse(
+                index.getFirstApplication(
+                                rename(), Collections.singleton("a"), ImmutableTreePath.of(0, 1))
+                        .isPresent());
+    }
+
+    @Test
+    public void fixpointWithIndex() {
+        StringTree expected =
+                new FixpointAlgorithm<>(new RenameTransformation(new TreePath())).apply(example());
+        assertEquals(expected, new FixpointAlgorithm<>(rename()).apply(example()));
+        assertEquals(
+                expected, new FixpointAlgorithm<>(new TreePath(), rename(), true).apply(example()));
+        assertEquals(
+                new FixpointAlgorithm<>(new RenameTransformation(new TreePath()))
+                        .forPath(new TreePath().child(1))
+                        .apply(example()),
+                new FixpointAlgorithm<>(new TreePath(), rename(), true)
+                        .forPath(new TreePath().child(1))
+                        .apply(example()));
+    }
+
+    @Test
+    public void incrementalFixpoint() {
+        Transformation<StringTree> rename = new RenameTransformation(new TreePath());
+        assertEquals(
+                new FixpointAlgorithm<>(rename).apply(example()),
+                new FixpointAlgorithm<>(new TreePath(), rename, true).apply(example()));
+        assertEquals(
+                new FixpointAlgorithm<>(rename).forPath(new TreePath().child(1)).apply(example()),
+                new FixpointAlgorithm<>(new TreePath(), rename, true)
+                        .forPath(new TreePath().child(1))
+                        .apply(example()));
+    }
+}
@@ -0,0 +1,67 @@
+package de.tudortmund.cs.iltis.utils.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import org.junit.Test;
+
+public class TreeCursorTest {
+
+    private static StringTree example() {
+        return new StringTree(
+                "a",
+                new StringTree("b", new StringTree("c"), new StringTree("d")),
+                new StringTree("e", new StringTree("f")));
+    }
+
+    @Test
+    public void navigate() {
+        StringTree tree = example();
+        TreeCursor<StringTree> cursor = tree.cursor();
+
+        assertEquals("d", cursor.down(0).down(1).getFocus().getLabel());
+        assertEquals(ImmutableTreePath.of(0, 1), cursor.getPath());
+        assertEquals("c", cursor.left().getFocus().getLabel());
+        assertEquals("e", cursor.up().right().getFocus().getLabel());
+        assertEquals(1, cursor.getDepth());
+        assertSame(tree, cursor.toRoot().getFocus());
+    }
+
+    @Test
+    public void editSharesUnchangedSubtrees() {
+        StringTree tree = example();
+        TreeCursor<StringTree> cursor = tree.cursor();
+
+        cursor.down(0).down(0).replace(new StringTree("x")).right().replace(new StringTree("y"));
+        StringTree result = cursor.toRoot().getFocus();
+
+        assertEquals(example(), tree);
+        assertEquals(
+                new StringTree(
+                        "a",
+                        new StringTree("b", new StringTree("x"), new StringTree("y")),
+                        new StringTree("e", new StringTree("f"))),
+                result);
+        assertSame(tree.getChild(1), result.getChild(1));
+    }
+
+    @Test
+    public void handedOutNodesAreNotAltered() {
+        TreeCursor<StringTree> cursor = example().cursor();
+
+        cursor.down(0).down(0).replace(new StringTree("x"));
+        StringTree first = cursor.toRoot().getFocus();
+        cursor.down(0).down(1).replace(new StringTree("y"));
+        StringTree second = cursor.toRoot().getFocus();
+
+        assertEquals("d", first.getChild(0).getChild(1).getLabel());
+        assertEquals("y", second.getChild(0).getChild(1).getLabel());
+        assertEquals("x", second.getChild(0).getChild(0).getLabel());
+    }
+
+    @Test(expected = TreePathException.class)
+    public void noParentOfRoot() {
+        example().cursor().up();
+    }
+}
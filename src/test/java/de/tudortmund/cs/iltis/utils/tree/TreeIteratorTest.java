@@ -1,9 +1,16 @@
 package de.tudortmund.cs.iltis.utils.tree;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 public class TreeIteratorTest {
@@ -103,4 +110,126 @@ public class TreeIteratorTest {
         ordered = t1.getDescendants();
         assertEquals(1, ordered.remove(0).value);
     }
+
+    @Test
+    public void deepTree() {
+        final int depth = 100000;
+        List<IntegerTree> nodes = new ArrayList<>();
+        for (int i = 0; i < depth; i++) nodes.add(new IntegerTree(i));
+        IntegerTree root = Tree.chain(nodes);
+
+        Iterator<IntegerTree> preorder = root.preorderDescendantIterator();
+        for (int i = 0; i < depth; i++) assertEquals(i, preorder.next().value);
+        assertFalse(preorder.hasNext());
+
+        Iterator<IntegerTree> postorder = root.postorderDescendantIterator();
+        for (int i = depth - 1; i >= 0; i--) assertEquals(i, postorder.next().value);
+        assertFalse(postorder.hasNext());
+
+        assertEquals(depth, root.getDescendants().size());
+
+        int height =
+                root.traverse(
+                        new DefaultTraversalStrategy<IntegerTree, Integer, Integer>() {
+                            @Override
+                            protected Integer value(Integer collectedValue, IntegerTree item) {
+                                return collectedValue + 1;
+                            }
+
+                            @Override
+                            protected Integer collect(Integer collectedValue, Integer nextValue) {
+                                return collectedValue == null
+                                        ? 0
+                                        : Math.max(collectedValue, nextValue);
+                            }
+                        });
+        assertEquals(depth, height);
+
+        TreePath path = new TreePath().down(depth - 1);
+        assertEquals(depth - 1, root.retrieve(path).value);
+    }
+
+    @Test
+    public void streams() {
+        IntegerTree t1 = new IntegerTree(1);
+        IntegerTree t2 = new IntegerTree(2);
+        IntegerTree t3 = new IntegerTree(3);
+        IntegerTree t4 = new IntegerTree(4);
+        IntegerTree t5 = new IntegerTree(5);
+        IntegerTree t6 = new IntegerTree(6);
+
+        t2.addChildren(t1, t3);
+        t6.addChildren(t5);
+        t4.addChildren(t2, t6);
+
+        assertEquals(
+                t4.getDescendants(t4.preorderDescendantIterator()),
+                t4.stream().collect(Collectors.toList()));
+        assertEquals(List.of(t1, t3, t5), t4.leafStream().collect(Collectors.toList()));
+        assertEquals(List.of(t1, t3, t5), t4.getLeaves());
+        assertTrue(t4.stream().anyMatch(node -> node.value == 5));
+    }
+
+    @Test
+    public void parallelStream() {
+        List<IntegerTree> nodes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            IntegerTree node = new IntegerTree(i);
+            if (i > 0) nodes.get((i - 1) / 3).addChild(node);
+            nodes.add(node);
+        }
+        IntegerTree root = nodes.get(0);
+
+        assertEquals(
+                root.getDescendants(root.preorderDescendantIterator()),
+                root.parallelStream().collect(Collectors.toList()));
+        assertEquals(
+                nodes.stream().mapToLong(node -> node.value).sum(),
+                root.parallelStream().mapToLong(node -> node.value).sum());
+    }
+
+    @Test
+    public void spliteratorHalvesEstimateAndStopsSplitting() {
+        IntegerTree root = new IntegerTree(0);
+        for (int i = 1; i <= 5000; i++) root.addChild(new IntegerTree(i));
+
+        TreeSpliterator<IntegerTree> spliterator = new TreeSpliterator<>(root);
+        assertEquals(Long.MAX_VALUE, spliterator.estimateSize());
+        Spliterator<IntegerTree> prefix = spliterator.trySplit();
+        assertEquals(Long.MAX_VALUE / 2, prefix.estimateSize());
+        assertEquals(Long.MAX_VALUE / 2, spliterator.estimateSize());
+
+        assertEquals(1024, countParts(spliterator) + countParts(prefix));
+    }
+
+    private static int countParts(Spliterator<IntegerTree> spliterator) {
+        Spliterator<IntegerTree> prefix = spliterator.trySplit();
+        if (prefix == null) return 1;
+        return countParts(prefix) + countParts(spliterator);
+    }
+
+    @Test
+    public void childrenView() {
+        IntegerTree root = new IntegerTree(0);
+        IntegerTree first = new IntegerTree(1);
+        root.addChildren(first, new IntegerTree(2));
+
+        List<IntegerTree> view = root.childrenView();
+        assertEquals(root.getChildren(), view);
+        assertSame(view, root.childrenView());
+
+        root.addChild(new IntegerTree(3));
+        assertEquals(3, view.size());
+
+        List<Integer> indices = new ArrayList<>();
+        root.forEachChild((child, index) -> indices.add(child.value * 10 + index));
+        assertEquals(List.of(10, 21, 32), indices);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void childrenViewIsReadOnly() {
+        IntegerTree root = new IntegerTree(0);
+        root.addChild(new IntegerTree(1));
+        root.childrenView().remove(0);
+    }
 }
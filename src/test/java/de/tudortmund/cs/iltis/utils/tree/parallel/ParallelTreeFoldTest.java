@@ -0,0 +1,85 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import static org.junit.Assert.assertEquals;
+
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class ParallelTreeFoldTest {
+
+    private static final Function<StringTree, String> LEAF = StringTree::getLabel;
+
+    private static final BiFunction<StringTree, List<String>, String> COMBINE =
+            (node, childrenOutput) -> node.getLabel() + childrenOutput;
+
+    /** Creates a complete binary tree of the specified height. */
+    private static StringTree complete(int height, String label) {
+        if (height == 0) return new StringTree(label);
+        return new StringTree(
+                label, complete(height - 1, label + "0"), complete(height - 1, label + "1"));
+    }
+
+    @Test
+    public void foldCompleteTree() {
+        StringTree tree = complete(12, "r");
+        String expected = tree.fold(LEAF, COMBINE);
+        for (int threshold : new int[] {1, 7, 100, 10000})
+            assertEquals(expected, ParallelTreeFold.fold(tree, LEAF, COMBINE, threshold));
+    }
+
+    @Test
+    public void foldDeepTree() {
+        // a long chain with complete subtrees hanging off it
+        StringTree tree = complete(6, "l");
+        for (int i = 0; i < 20000; i++) {
+            List<StringTree> children = new ArrayList<>();
+            children.add(tree);
+            if (i % 100 == 0) children.add(complete(6, "s" + i));
+            tree = new StringTree("c", children);
+        }
+
+        int size = tree.fold(node -> 1, (node, sizes) -> 1 + sizes.stream().mapToInt(x -> x).sum());
+        int parallelSize =
+                ParallelTreeFold.fold(
+                        tree,
+                        node -> 1,
+                        (node, sizes) -> 1 + sizes.stream().mapToInt(x -> x).sum(),
+                        50);
+        assertEquals(size, parallelSize);
+    }
+
+    @Test
+    public void foldWideTree() {
+        // many small children in between a few large ones
+        List<StringTree> children = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            children.add(i % 1000 == 999 ? complete(8, "l" + i) : complete(i % 3, "s" + i));
+        StringTree tree = new StringTree("r", children);
+        String expected = tree.fold(LEAF, COMBINE);
+
+        for (int threshold : new int[] {1, 50, 1000, 100000}) {
+            AtomicInteger leaves = new AtomicInteger();
+            String output =
+                    ParallelTreeFold.fold(
+                            tree,
+                            node -> {
+                                leaves.incrementAndGet();
+                                return LEAF.apply(node);
+                            },
+                            COMBINE,
+                            threshold);
+            assertEquals(expected, output);
+            assertEquals(tree.getLeaves().size(), leaves.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveThreshold() {
+        ParallelTreeFold.fold(new StringTree("a"), LEAF, COMBINE, 0);
+    }
+}
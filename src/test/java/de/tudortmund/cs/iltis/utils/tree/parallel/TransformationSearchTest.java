@@ -0,0 +1,67 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import de.tudortmund.cs.iltis.utils.tree.pattern.EqualsPattern;
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import de.tudortmund.cs.iltis.utils.tree.transformations.IterativeTransformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class TransformationSearchTest {
+
+    /** Replaces the label of a leaf by the next letter up to "d". */
+    private static class NextLetter implements Transformation<StringTree> {
+        private final TreePath path;
+
+        NextLetter(TreePath path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean isApplicable(StringTree tree) {
+            StringTree node = tree.retrieve(path);
+            return node.isLeaf() && node.getLabel().compareTo("d") < 0;
+        }
+
+        @Override
+        public StringTree apply(StringTree tree) {
+            char label = tree.retrieve(path).getLabel().charAt(0);
+            return (StringTree)
+                    tree.transformPersistently(
+                            path, new StringTree(String.valueOf((char) (label + 1))));
+        }
+
+        @Override
+        public Transformation<StringTree> forPath(TreePath path) {
+            return new NextLetter(path);
+        }
+    }
+
+    private static StringTree tree(String first, String second, String third) {
+        return new StringTree(
+                "r", new StringTree(first), new StringTree(second), new StringTree(third));
+    }
+
+    @Test
+    public void findShortestSequence() {
+        StringTree start = tree("a", "a", "b");
+        StringTree target = tree("c", "b", "b");
+        TransformationSearch<StringTree> search =
+                new TransformationSearch<>(
+                        Collections.singleton(new NextLetter(new TreePath())),
+                        new EqualsPattern<>(target),
+                        new ForkJoinPool(4));
+
+        IterativeTransformation<StringTree> sequence = search.findShortest(start, 10).get();
+        assertEquals(3, sequence.size());
+        assertEquals(target, sequence.apply(start));
+        assertEquals(0, search.findShortest(target, 0).get().size());
+        assertFalse(search.findShortest(start, 2).isPresent());
+        assertFalse(search.findShortest(tree("d", "a", "a"), 10).isPresent());
+    }
+}
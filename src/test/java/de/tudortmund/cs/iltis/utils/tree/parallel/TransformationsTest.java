@@ -0,0 +1,84 @@
+package de.tudortmund.cs.iltis.utils.tree.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.tudortmund.cs.iltis.utils.collections.Either;
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import de.tudortmund.cs.iltis.utils.tree.transformations.Transformation;
+import de.tudortmund.cs.iltis.utils.tree.transformations.TransformationUnapplicable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TransformationsTest {
+
+    /** Appends "!" to the label of the root, unless it is empty, and counts its applications. */
+    private static class Exclaim implements Transformation<StringTree> {
+        private final AtomicInteger applications = new AtomicInteger();
+
+        @Override
+        public boolean isApplicable(StringTree tree) {
+            return !tree.getLabel().isEmpty();
+        }
+
+        @Override
+        public StringTree apply(StringTree tree) {
+            if (!isApplicable(tree)) throw new TransformationUnapplicable(tree);
+            applications.incrementAndGet();
+            return new StringTree(tree.getLabel() + "!", tree.getChildren());
+        }
+
+        @Override
+        public Transformation<StringTree> forPath(TreePath path) {
+            return this;
+        }
+    }
+
+    @Test
+    public void resultsInInputOrder() {
+        List<StringTree> trees = new ArrayList<>();
+        for (int i = 0; i < 200; i++) trees.add(new StringTree(i % 7 == 0 ? "" : "t" + i));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Either<StringTree, RuntimeException>> results =
+                    Transformations.applyAll(new Exclaim(), trees, executor);
+            List<Either<StringTree, RuntimeException>> cachedResults =
+                    Transformations.applyAll(new Exclaim(), trees, executor, 10);
+
+            assertEquals(trees.size(), results.size());
+            for (int i = 0; i < trees.size(); i++) {
+                if (i % 7 == 0) {
+                    assertTrue(results.get(i).getRight() instanceof TransformationUnapplicable);
+                    assertTrue(cachedResults.get(i).isRight());
+                } else {
+                    assertEquals("t" + i + "!", results.get(i).getLeft().getLabel());
+                    assertEquals(results.get(i), cachedResults.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void duplicatesAreAnsweredFromCache() {
+        List<StringTree> trees = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            trees.add(new StringTree("t" + i % 5, new StringTree("c" + i % 5)));
+
+        // runs the tasks one after another, so no duplicate is transformed concurrently
+        Exclaim exclaim = new Exclaim();
+        List<Either<StringTree, RuntimeException>> results =
+                Transformations.applyAll(exclaim, trees, Runnable::run, 10);
+
+        assertEquals(5, exclaim.applications.get());
+        for (int i = 0; i < trees.size(); i++)
+            assertEquals("t" + i % 5 + "!", results.get(i).getLeft().getLabel());
+    }
+}
@@ -4,10 +4,19 @@ import static org.junit.Assert.*;
 
 import de.tudortmund.cs.iltis.utils.IndexedSymbol;
 import de.tudortmund.cs.iltis.utils.tree.Tree;
+import de.tudortmund.cs.iltis.utils.tree.pattern.match.ConjunctionTreeMatchIterator;
 import de.tudortmund.cs.iltis.utils.tree.pattern.match.Match;
+import de.tudortmund.cs.iltis.utils.tree.pattern.match.TreeMatch;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.Test;
 
 public class PatternTest {
@@ -72,6 +81,13 @@ public class PatternTest {
         checkMatches(pattern, Arrays.asList(treeA, treeB));
         checkNoMatches(pattern, Arrays.asList(treeC));
         checkNoMatches(pattern, Arrays.asList(treeA, treeC, treeB));
+
+        List<TreePattern<StringTree>> clones = pattern.getIteratedSubpatterns(2);
+        assertEquals(new IndexedSymbol("Y[1]"), clones.get(1).getName());
+        assertSame(clones.get(0), pattern.getIteratedSubpatterns(1).get(0));
+        assertEquals(
+                new IndexedSymbol("Z[3][]", "1", "2"),
+                TreePattern.iterateName(new IndexedSymbol("Z[][]", "1", "2"), 3));
     }
 
     @Test
@@ -221,6 +237,279 @@ public class PatternTest {
         checkNoMatch(pattern, treeA);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void CompiledMatchesAgreeWithIterators() {
+        StringTree treeA = new StringTree("A");
+        StringTree treeB = new StringTree("B");
+        StringTree treeC = new StringTree("C", treeA, treeB);
+        List<StringTree> trees = Arrays.asList(treeA, treeB, treeC);
+
+        List<TreePattern<StringTree>> patterns =
+                Arrays.asList(
+                        new FlexibleArityForestPattern<>(
+                                new RepeatForestPattern<>(new EqualsPattern<>(treeA)),
+                                new EqualsPattern<>(treeB),
+                                new RepeatForestPattern<>(new AnyPattern<StringTree>())),
+                        new FlexibleArityForestPattern<>(),
+                        new FixedArityForestPattern<>(),
+                        new FixedArityForestPattern<>(
+                                new ComplementPattern<>(new EqualsPattern<>(treeA)),
+                                new ContainsDescendantPattern<>(new EqualsPattern<>(treeA))),
+                        new ChildrenPattern<>(
+                                new FlexibleArityForestPattern<>(
+                                        new AlternativePattern<>(),
+                                        new RepeatForestPattern<>(new AnyPattern<StringTree>()))),
+                        new ChildrenPattern<>(
+                                new FlexibleArityForestPattern<>(
+                                        new RepeatForestPattern<>(new AnyPattern<StringTree>()),
+                                        new EqualsPattern<>(treeB))),
+                        new MultiConstraintPattern<>(
+                                new AlternativePattern<>(
+                                        new EqualsPattern<>(treeC), new EqualsPattern<>(treeB)),
+                                new ComplementPattern<>(
+                                        new ChildrenPattern<>(
+                                                new FixedArityForestPattern<StringTree>()))),
+                        new ContainsDescendantPattern<>(
+                                new FlexibleArityForestPattern<>(
+                                        new RepeatForestPattern<>(new EqualsPattern<>(treeB)))));
+
+        List<List<StringTree>> forests = new ArrayList<>();
+        forests.add(Collections.emptyList());
+        for (int length = 1; length <= 3; length++) {
+            int size = forests.size();
+            for (int i = 0; i < size; i++) {
+                if (forests.get(i).size() != length - 1) continue;
+                for (StringTree tree : trees) {
+                    List<StringTree> forest = new ArrayList<>(forests.get(i));
+                    forest.add(tree);
+                    forests.add(forest);
+                }
+            }
+        }
+
+        for (TreePattern<StringTree> pattern : patterns) {
+            assertNotNull(pattern.compiled());
+            for (List<StringTree> forest : forests)
+                assertEquals(
+                        pattern + " on " + forest,
+                        pattern.matchIterator(forest).hasNext(),
+                        pattern.matches(forest));
+        }
+
+        IndexedSymbol x = new IndexedSymbol("X");
+        assertNull(new RepeatForestPattern<>(new EqualsPattern<>(x, treeA)).compiled());
+    }
+
+    @Test
+    public void CompiledFlexibleArityIsPolynomial() {
+        StringTree treeA = new StringTree("A");
+        StringTree treeB = new StringTree("B");
+        List<TreePattern<StringTree>> parts = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            parts.add(new RepeatForestPattern<>(new EqualsPattern<>(treeA)));
+        parts.add(new EqualsPattern<>(treeB));
+        FlexibleArityForestPattern<StringTree> pattern = new FlexibleArityForestPattern<>(parts);
+
+        // enumerating the partitions of this forest would take far too long
+        List<StringTree> forest = new ArrayList<>(Collections.nCopies(60, treeA));
+        assertFalse(pattern.matches(forest));
+        forest.add(treeB);
+        assertTrue(pattern.matches(forest));
+    }
+
+    @Test
+    public void VariableFreeSubpatternsInNamedPattern() {
+        IndexedSymbol u = new IndexedSymbol("U");
+        IndexedSymbol x = new IndexedSymbol("X");
+        StringTree treeA = new StringTree("A");
+        StringTree treeB = new StringTree("B");
+        StringTree treeC = new StringTree("C", treeA, treeB);
+        FlexibleArityForestPattern<StringTree> pattern =
+                new FlexibleArityForestPattern<>(
+                        u,
+                        new RepeatForestPattern<>(new EqualsPattern<>(treeA)),
+                        new EqualsPattern<>(x, treeB),
+                        new RepeatForestPattern<>(
+                                new ComplementPattern<>(
+                                        new ContainsDescendantPattern<>(
+                                                new EqualsPattern<>(treeB)))));
+
+        List<StringTree> forest = Arrays.asList(treeA, treeA, treeB, treeA, treeA);
+        checkMatches(pattern, forest);
+        assertEquals(1, pattern.getAllMatches(forest).size());
+        assertEquals(
+                Optional.of(treeB), pattern.getFirstMatchIfAny(forest).get().getDefinedTree(x));
+        checkNoMatches(pattern, Arrays.asList(treeA, treeB, treeC));
+        checkNoMatches(pattern, Arrays.asList(treeA, treeC, treeB));
+
+        MultiConstraintPattern<StringTree> multiPattern =
+                new MultiConstraintPattern<>(
+                        u,
+                        new ContainsDescendantPattern<>(new EqualsPattern<>(treeA)),
+                        new ChildrenPattern<>(
+                                new FixedArityForestPattern<>(
+                                        new AnyPattern<>(x), new EqualsPattern<>(treeB))));
+        checkMatch(multiPattern, treeC);
+        checkNoMatch(multiPattern, treeA);
+    }
+
+    @Test
+    public void DuplicateMatchesAreEliminated() {
+        IndexedSymbol x = new IndexedSymbol("X");
+        StringTree treeA = new StringTree("A");
+        StringTree treeB = new StringTree("B", treeA, treeA);
+
+        AlternativePattern<StringTree> pattern =
+                new AlternativePattern<>(new EqualsPattern<>(x, treeA), new AnyPattern<>(x));
+        Iterator<Match<StringTree>> iterator = pattern.matchIterator(treeA);
+        assertTrue(iterator.hasNext());
+        assertEquals(Optional.of(treeA), iterator.next().getDefinedTree(x));
+        assertFalse(iterator.hasNext());
+
+        ContainsDescendantPattern<StringTree> descendantPattern =
+                new ContainsDescendantPattern<>(new EqualsPattern<>(x, treeA));
+        iterator = descendantPattern.matchIterator(treeB);
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void ForestWidths() {
+        StringTree treeA = new StringTree("A");
+        FixedArityForestPattern<StringTree> pair =
+                new FixedArityForestPattern<>(new AnyPattern<StringTree>(), new AnyPattern<>());
+        RepeatForestPattern<StringTree> repeat =
+                new RepeatForestPattern<>(new AnyPattern<StringTree>());
+        assertEquals(2, pair.getMinForestWidth());
+        assertEquals(2, pair.getMaxForestWidth());
+        assertEquals(0, repeat.getMinForestWidth());
+        assertEquals(Integer.MAX_VALUE, repeat.getMaxForestWidth());
+
+        FlexibleArityForestPattern<StringTree> flexible =
+                new FlexibleArityForestPattern<>(pair, new ChildrenPattern<>(repeat), pair);
+        assertEquals(5, flexible.getMinForestWidth());
+        assertEquals(5, flexible.getMaxForestWidth());
+        AlternativePattern<StringTree> alternative =
+                new AlternativePattern<>(flexible, new ChildrenPattern<>(pair));
+        assertEquals(1, alternative.getMinForestWidth());
+        assertEquals(5, alternative.getMaxForestWidth());
+
+        // only one of the C(44, 19) partitions of the forest respects the widths of the parts
+        List<TreePattern<StringTree>> parts = new ArrayList<>();
+        for (int i = 0; i < 19; i++)
+            parts.add(
+                    new FixedArityForestPattern<>(
+                            new AnyPattern<StringTree>(new IndexedSymbol("X" + i))));
+        parts.add(new RepeatForestPattern<>(new AnyPattern<StringTree>()));
+        FlexibleArityForestPattern<StringTree> pattern = new FlexibleArityForestPattern<>(parts);
+        List<StringTree> forest = Collections.nCopies(25, treeA);
+        assertEquals(1, pattern.getAllMatches(forest).size());
+        checkNoMatches(pattern, forest.subList(0, 18));
+    }
+
+    @Test
+    public void DescendantsAreSearchedLazily() {
+        IndexedSymbol x = new IndexedSymbol("X");
+        StringTree treeA = new StringTree("A");
+        List<StringTree> children = new ArrayList<>(Collections.nCopies(1000, new StringTree("B")));
+        children.add(0, treeA);
+        StringTree tree = new StringTree("R", children);
+
+        int[] tested = {0};
+        PredicatePattern<StringTree> isA =
+                new PredicatePattern<>(
+                        x,
+                        forest -> {
+                            tested[0]++;
+                            return forest.get(0).getLabel().equals("A");
+                        });
+        ContainsDescendantPattern<StringTree> pattern = new ContainsDescendantPattern<>(isA);
+        Optional<Match<StringTree>> match = pattern.getFirstMatchIfAny(tree);
+        assertTrue(match.isPresent());
+        assertEquals(Optional.of(treeA), match.get().getDefinedTree(x));
+        assertEquals(2, tested[0]);
+        assertEquals(1, pattern.getAllMatches(tree).size());
+
+        ContainsDescendantPattern<StringTree> unnamed =
+                new ContainsDescendantPattern<>(x, new EqualsPattern<>(treeA));
+        assertEquals(1, unnamed.getAllMatches(tree).size());
+        checkNoMatch(unnamed, new StringTree("R", new StringTree("B")));
+    }
+
+    @Test
+    public void ConjunctionOnlyExtendsConsistentMatches() {
+        IndexedSymbol x = new IndexedSymbol("X");
+        IndexedSymbol y = new IndexedSymbol("Y");
+        List<StringTree> children = new ArrayList<>();
+        for (int i = 0; i < 29; i++) children.add(new StringTree("L" + i));
+        StringTree tree = new StringTree("R", children);
+
+        // the product of the conjuncts' matches has 30^8 elements, but only 30 are consistent
+        List<TreePattern<StringTree>> conjuncts = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            conjuncts.add(new ContainsDescendantPattern<>(new AnyPattern<StringTree>(x)));
+        MultiConstraintPattern<StringTree> pattern = new MultiConstraintPattern<>(conjuncts);
+        assertEquals(30, pattern.getAllMatches(tree).size());
+
+        conjuncts.add(new ContainsDescendantPattern<>(new AnyPattern<StringTree>(y)));
+        conjuncts.add(new ContainsDescendantPattern<>(new EqualsPattern<>(x, children.get(3))));
+        pattern = new MultiConstraintPattern<>(conjuncts);
+        Set<Match<StringTree>> matches = pattern.getAllMatches(tree);
+        assertEquals(30, matches.size());
+        for (Match<StringTree> match : matches)
+            assertEquals(Optional.of(children.get(3)), match.getDefinedTree(x));
+    }
+
+    @Test
+    public void FlexibleArityMatchesAreSerializable() throws IOException {
+        TreePattern<StringTree> pattern =
+                new FlexibleArityForestPattern<>(
+                        new RepeatForestPattern<>(
+                                new IndexedSymbol("X"), new AnyPattern<StringTree>()),
+                        new EqualsPattern<>(new IndexedSymbol("Y"), new StringTree("B")));
+        List<StringTree> forest =
+                Arrays.asList(new StringTree("A"), new StringTree("A"), new StringTree("B"));
+
+        Optional<Match<StringTree>> match = pattern.getFirstMatchIfAny(forest);
+        assertTrue(match.isPresent());
+        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(match.get());
+    }
+
+    @Test
+    public void ConjunctionPullsMatchesOnDemand() {
+        StringTree leaf = new StringTree("L");
+        int[] pulled = new int[1];
+        List<Iterator<Match<StringTree>>> iterators = new ArrayList<>();
+        for (String name : Arrays.asList("X", "Y")) {
+            iterators.add(
+                    new Iterator<Match<StringTree>>() {
+                        private int remaining = 100000;
+
+                        @Override
+                        public boolean hasNext() {
+                            return remaining > 0;
+                        }
+
+                        @Override
+                        public Match<StringTree> next() {
+                            remaining--;
+                            pulled[0]++;
+                            return new TreeMatch<StringTree>()
+                                    .withDefinition(new IndexedSymbol(name), leaf)
+                                    .get();
+                        }
+                    });
+        }
+
+        Iterator<Match<StringTree>> conjunction =
+                ConjunctionTreeMatchIterator.fromIterators(iterators);
+        assertTrue(conjunction.hasNext());
+        conjunction.next();
+        assertTrue(pulled[0] <= 3);
+    }
+
     protected <MatchedT extends Tree<MatchedT>> void checkMatch(
             TreePattern<MatchedT> pattern, MatchedT tree) {
         Optional<Match<MatchedT>> match = pattern.getFirstMatchIfAny(tree);
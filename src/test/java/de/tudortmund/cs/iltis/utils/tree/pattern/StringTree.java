@@ -54,6 +54,11 @@ public class StringTree extends Tree<StringTree> implements Comparable<StringTre
         return 0;
     }
 
+    @Override
+    public StringTree clone() {
+        return new StringTree(label, getClonedChildren());
+    }
+
     @Override
     public boolean equals(Object obj) {
         return super.equals(obj) && Objects.equals(label, ((StringTree) obj).label);
@@ -64,6 +69,11 @@ public class StringTree extends Tree<StringTree> implements Comparable<StringTre
         return Objects.hash(super.hashCode(), label);
     }
 
+    @Override
+    protected int nodeHashCode() {
+        return Objects.hashCode(label);
+    }
+
     @Override
     public String toString() {
         StringTreeWriter writer = new StringTreeWriter();
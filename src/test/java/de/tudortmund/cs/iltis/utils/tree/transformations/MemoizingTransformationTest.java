@@ -0,0 +1,130 @@
+package de.tudortmund.cs.iltis.utils.tree.transformations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import de.tudortmund.cs.iltis.utils.tree.TreePath;
+import de.tudortmund.cs.iltis.utils.tree.pattern.StringTree;
+import org.junit.Test;
+
+public class MemoizingTransformationTest {
+
+    /** Reverses the order of the children of a node labelled "r" and counts its applications. */
+    private static class ReverseTransformation implements Transformation<StringTree> {
+        private final TreePath path;
+        private int applications;
+
+        ReverseTransformation(TreePath path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean isApplicable(StringTree tree) {
+            return tree.retrieve(path).getLabel().equals("r");
+        }
+
+        @Override
+        public StringTree apply(StringTree tree) {
+            applications++;
+            StringTree node = tree.retrieve(path);
+            StringTree[] children = new StringTree[node.getNumberOfChildren()];
+            for (int i = 0; i < children.length; i++)
+                children[children.length - 1 - i] = node.getChild(i);
+            return (StringTree)
+                    tree.transformPersistently(path, new StringTree(node.getLabel(), children));
+        }
+
+        @Override
+        public Transformation<StringTree> forPath(TreePath path) {
+            return this.path.equals(path) ? this : new ReverseTransformation(path);
+        }
+    }
+
+    private static StringTree shared() {
+        return new StringTree("r", new StringTree("a"), new StringTree("b"));
+    }
+
+    @Test
+    public void sharedSubtreesAreAnsweredFromCache() {
+        ReverseTransformation reverse = new ReverseTransformation(new TreePath());
+        MemoizingTransformation<StringTree> memo = new MemoizingTransformation<>(reverse, 10);
+        StringTree shared = shared();
+        StringTree tree = new StringTree("x", shared, new StringTree("y", shared));
+
+        StringTree first = memo.forPath(new TreePath().child(0)).apply(tree);
+        StringTree second = memo.forPath(new TreePath().child(1).child(0)).apply(first);
+
+        StringTree reversed = new StringTree("r", new StringTree("b"), new StringTree("a"));
+        assertEquals(new StringTree("x", reversed, new StringTree("y", reversed)), second);
+        assertSame(second.getChild(0), second.getChild(1).getChild(0));
+        assertEquals(1, reverse.applications);
+        assertEquals(1, memo.getHits());
+        assertEquals(1, memo.getMisses());
+
+        assertTrue(memo.forPath(new TreePath().child(0)).isApplicable(tree));
+        assertFalse(memo.isApplicable(tree));
+        assertTrue(memo.forPath(new TreePath().child(1).child(0)).isApplicable(tree));
+        assertEquals(2, memo.getHits());
+        assertEquals(3, memo.getMisses());
+
+        memo.clear();
+        assertEquals(0, memo.getHits());
+        memo.apply(shared());
+        assertEquals(2, reverse.applications);
+    }
+
+    @Test
+    public void equalTreesShareResults() {
+        ReverseTransformation reverse = new ReverseTransformation(new TreePath());
+        MemoizingTransformation<StringTree> memo = new MemoizingTransformation<>(reverse, 1);
+        StringTree shared = shared();
+        StringTree result = memo.apply(shared);
+        assertSame(result, memo.apply(shared));
+        assertSame(memo, memo.forPath(new TreePath()));
+
+        // equal but distinct trees are answered from the cache
+        assertSame(result, memo.apply(shared()));
+        assertEquals(1, reverse.applications);
+        assertEquals(2, memo.getHits());
+        assertEquals(1, memo.getMisses());
+
+        // trees of the same shape are not
+        assertEquals(shared(), memo.apply(result));
+        assertEquals(2, reverse.applications);
+
+        // the capacity is exceeded
+        memo.apply(new StringTree("r", new StringTree("c")));
+        assertEquals(result, memo.apply(shared));
+        assertEquals(4, memo.getMisses());
+    }
+
+    @Test
+    public void sharedSubformulasOfDistinctTreesAreAnsweredFromCache() {
+        ReverseTransformation reverse = new ReverseTransformation(new TreePath());
+        MemoizingTransformation<StringTree> memo = new MemoizingTransformation<>(reverse, 10);
+        TreePath path = new TreePath().child(1);
+
+        memo.forPath(path).apply(new StringTree("x", new StringTree("a"), shared()));
+        StringTree result =
+                memo.forPath(path).apply(new StringTree("y", new StringTree("b"), shared()));
+
+        StringTree reversed = new StringTree("r", new StringTree("b"), new StringTree("a"));
+        assertEquals(new StringTree("y", new StringTree("b"), reversed), result);
+        assertEquals(1, reverse.applications);
+        assertEquals(1, memo.getHits());
+    }
+
+    @Test
+    public void deepTreesAreLookedUpInConstantTime() {
+        StringTree tree = new StringTree("a");
+        for (int i = 0; i < 100000; i++) tree = new StringTree("a", tree);
+
+        MemoizingTransformation<StringTree> memo =
+                new MemoizingTransformation<>(new ReverseTransformation(new TreePath()), 10);
+        assertFalse(memo.isApplicable(tree));
+        assertFalse(memo.isApplicable(tree));
+        assertEquals(1, memo.getHits());
+    }
+}